@@ -21,6 +21,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import jetbrains.buildServer.util.FileUtil;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -54,6 +55,22 @@ public class FileRules implements Rules {
     return myFile.isDirectory() ? collectFilesInFolder(myFile) : Collections.singletonList(myFile);
   }
 
+  @NotNull
+  @Override
+  public Collection<File> getWatchRoots() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public boolean isIncluded(@NotNull final File file) {
+    return myFile.equals(file) || myFile.equals(file.getParentFile());
+  }
+
+  @Override
+  public boolean mayContainIncluded(@NotNull final File dir) {
+    return FileUtil.isAncestor(dir, myFile, false);
+  }
+
   @NotNull
   private List<File> collectFilesInFolder(@NotNull File folder) {
     final File[] files = folder.listFiles();
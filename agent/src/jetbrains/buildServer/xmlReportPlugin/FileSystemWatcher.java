@@ -0,0 +1,185 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import jetbrains.buildServer.xmlReportPlugin.utils.LoggingUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Detects created and modified files under the given root directories using native file system events.
+ * Directories which can't be watched (network mounts, symbolic links, exceeded watches limit) are polled instead.
+ */
+public class FileSystemWatcher {
+  private static final Set<String> NETWORK_FILE_STORE_TYPES = new HashSet<String>(Arrays.asList(
+    "nfs", "nfs4", "cifs", "smbfs", "smb3", "afs", "9p", "fuse.sshfs"
+  ));
+
+  @NotNull
+  private final FileFilter myDirFilter;
+  @NotNull
+  private final WatchService myWatchService;
+  @NotNull
+  private final Map<WatchKey, Path> myWatchedDirs = new HashMap<WatchKey, Path>();
+  @NotNull
+  private final Set<File> myMissingRoots = new LinkedHashSet<File>();
+  @NotNull
+  private final Set<File> myPolledDirs = new LinkedHashSet<File>();
+
+  private boolean myEventsLost;
+
+  /**
+   * @param roots directories to watch recursively
+   * @param dirFilter accepts the directories under roots which may contain the files of interest
+   */
+  public FileSystemWatcher(@NotNull Collection<File> roots, @NotNull FileFilter dirFilter) throws IOException {
+    myDirFilter = dirFilter;
+    myWatchService = FileSystems.getDefault().newWatchService();
+    myMissingRoots.addAll(roots);
+  }
+
+  /**
+   * Registers all the existing roots, roots created later are registered on {@link #collectChangedFiles()}
+   */
+  public void start() {
+    registerAppearedRoots(null);
+  }
+
+  /**
+   * Collects the files created or modified since the previous call and all the files from the polled directories
+   * @return changed files or null if some events were lost and the roots must be rescanned
+   */
+  @Nullable
+  public Collection<File> collectChangedFiles() {
+    final Set<File> files = new LinkedHashSet<File>();
+
+    registerAppearedRoots(files);
+
+    WatchKey key;
+    while ((key = myWatchService.poll()) != null) {
+      final Path dir = myWatchedDirs.get(key);
+      for (WatchEvent<?> event : key.pollEvents()) {
+        if (event.kind() == OVERFLOW) {
+          myEventsLost = true;
+          continue;
+        }
+        if (dir == null) continue;
+
+        final File file = dir.resolve((Path)event.context()).toFile();
+        if (file.isDirectory()) {
+          if (event.kind() == ENTRY_CREATE && myDirFilter.accept(file)) register(file, files);
+        } else {
+          files.add(file);
+        }
+      }
+      if (!key.reset()) myWatchedDirs.remove(key);
+    }
+
+    for (File dir : myPolledDirs) {
+      collectFiles(dir, files);
+    }
+
+    if (myEventsLost) {
+      myEventsLost = false;
+      return null;
+    }
+    return files;
+  }
+
+  public void stop() {
+    try {
+      myWatchService.close();
+    } catch (IOException e) {
+      LoggingUtils.LOG.warn("Failed to close file system watcher: " + e.toString());
+    }
+    myWatchedDirs.clear();
+  }
+
+  private void registerAppearedRoots(@Nullable Collection<File> files) {
+    for (Iterator<File> it = myMissingRoots.iterator(); it.hasNext();) {
+      final File root = it.next();
+      if (!root.isDirectory()) continue;
+
+      it.remove();
+      if (isNetworkDir(root)) {
+        LoggingUtils.LOG.info("Polling " + root + " for reports as it is located on a network file system");
+        myPolledDirs.add(root);
+      } else {
+        register(root, files);
+      }
+    }
+  }
+
+  private void register(@NotNull File dir, @Nullable Collection<File> files) {
+    final Path path = dir.toPath();
+    if (Files.isSymbolicLink(path)) {
+      poll(dir, files);
+      return;
+    }
+
+    try {
+      myWatchedDirs.put(path.register(myWatchService, ENTRY_CREATE, ENTRY_MODIFY), path);
+    } catch (IOException e) {
+      LoggingUtils.LOG.debug("Failed to watch " + dir + ", will poll it instead: " + e.toString());
+      poll(dir, files);
+      return;
+    }
+
+    // files created before the directory got registered never produce events
+    final File[] children = dir.listFiles();
+    if (children == null) return;
+    for (File child : children) {
+      if (child.isDirectory()) {
+        if (myDirFilter.accept(child)) register(child, files);
+      } else if (files != null) {
+        files.add(child);
+      }
+    }
+  }
+
+  private void poll(@NotNull File dir, @Nullable Collection<File> files) {
+    myPolledDirs.add(dir);
+    if (files != null) collectFiles(dir, files);
+  }
+
+  private void collectFiles(@NotNull File dir, @NotNull Collection<File> files) {
+    final File[] children = dir.listFiles();
+    if (children == null) return;
+    for (File child : children) {
+      if (child.isDirectory()) {
+        if (!Files.isSymbolicLink(child.toPath()) && myDirFilter.accept(child)) collectFiles(child, files);
+      } else {
+        files.add(child);
+      }
+    }
+  }
+
+  private static boolean isNetworkDir(@NotNull File dir) {
+    try {
+      return NETWORK_FILE_STORE_TYPES.contains(Files.getFileStore(dir.toPath()).type());
+    } catch (IOException e) {
+      return false;
+    }
+  }
+}
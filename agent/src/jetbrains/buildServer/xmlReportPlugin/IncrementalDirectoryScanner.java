@@ -0,0 +1,168 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Collects files under the given roots remembering the content of each directory,
+ * so that only the directories modified since the previous scan are listed again
+ */
+public class IncrementalDirectoryScanner {
+  /**
+   * Directories modified so recently that they may change once more
+   * without changing the last modified time are listed again on the next scan
+   */
+  private static final long RACY_INTERVAL = 2000L;
+
+  @NotNull
+  private final FileFilter myFileFilter;
+  @NotNull
+  private final FileFilter myDirFilter;
+  @NotNull
+  private final Map<File, DirectorySnapshot> mySnapshots = new HashMap<File, DirectorySnapshot>();
+
+  /**
+   * Both filters must always give the same answer for the same file
+   * @param fileFilter accepts the files to collect
+   * @param dirFilter accepts the directories to step into
+   */
+  public IncrementalDirectoryScanner(@NotNull FileFilter fileFilter, @NotNull FileFilter dirFilter) {
+    myFileFilter = fileFilter;
+    myDirFilter = dirFilter;
+  }
+
+  @NotNull
+  public List<File> scan(@NotNull Collection<File> roots) {
+    return scan(roots, false);
+  }
+
+  /**
+   * @param full true to list all the directories again without trusting their last modified time,
+   *             the remembered content is replaced with the listed one
+   */
+  @NotNull
+  public synchronized List<File> scan(@NotNull Collection<File> roots, boolean full) {
+    final List<File> result = new ArrayList<File>();
+    final Set<File> visited = new HashSet<File>();
+    final Set<Object> visitedKeys = new HashSet<Object>();
+    final long now = System.currentTimeMillis();
+
+    for (File root : roots) {
+      final BasicFileAttributes attributes = readAttributes(root);
+      if (attributes != null && attributes.isDirectory()) {
+        scanDirectory(root, attributes, full, now, result, visited, visitedKeys);
+      }
+    }
+
+    // forget the deleted directories, so that recreated ones are listed from scratch
+    mySnapshots.keySet().retainAll(visited);
+    return result;
+  }
+
+  @Nullable
+  protected File[] listFiles(@NotNull File dir) {
+    return dir.listFiles();
+  }
+
+  private void scanDirectory(@NotNull File dir,
+                             @NotNull BasicFileAttributes attributes,
+                             boolean full,
+                             long now,
+                             @NotNull List<File> result,
+                             @NotNull Set<File> visited,
+                             @NotNull Set<Object> visitedKeys) {
+    if (!visited.add(dir)) return;
+
+    final Object key = attributes.fileKey();
+    if (key != null && !visitedKeys.add(key)) return; // symbolic link cycle
+
+    final long lastModified = attributes.lastModifiedTime().toMillis();
+
+    DirectorySnapshot snapshot = mySnapshots.get(dir);
+    if (full || snapshot == null || !snapshot.isUpToDate(lastModified, key)) {
+      snapshot = createSnapshot(dir, lastModified, key, now);
+      mySnapshots.put(dir, snapshot);
+    }
+
+    result.addAll(snapshot.myFiles);
+
+    for (File subDir : snapshot.myDirs) {
+      final BasicFileAttributes subDirAttributes = readAttributes(subDir);
+      if (subDirAttributes != null && subDirAttributes.isDirectory()) {
+        scanDirectory(subDir, subDirAttributes, full, now, result, visited, visitedKeys);
+      }
+    }
+  }
+
+  @NotNull
+  private DirectorySnapshot createSnapshot(@NotNull File dir, long lastModified, @Nullable Object key, long now) {
+    final List<File> files = new ArrayList<File>();
+    final List<File> dirs = new ArrayList<File>();
+
+    final File[] children = listFiles(dir);
+    if (children != null) {
+      for (File child : children) {
+        if (child.isDirectory()) {
+          if (myDirFilter.accept(child)) dirs.add(child);
+        } else if (myFileFilter.accept(child)) {
+          files.add(child);
+        }
+      }
+    }
+    return new DirectorySnapshot(lastModified, key, now - lastModified > RACY_INTERVAL, files, dirs);
+  }
+
+  @Nullable
+  private static BasicFileAttributes readAttributes(@NotNull File file) {
+    try {
+      return Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private static final class DirectorySnapshot {
+    private final long myLastModified;
+    @Nullable
+    private final Object myKey;
+    private final boolean myTrusted;
+    @NotNull
+    private final List<File> myFiles;
+    @NotNull
+    private final List<File> myDirs;
+
+    private DirectorySnapshot(long lastModified, @Nullable Object key, boolean trusted, @NotNull List<File> files, @NotNull List<File> dirs) {
+      myLastModified = lastModified;
+      myKey = key;
+      myTrusted = trusted;
+      myFiles = files;
+      myDirs = dirs;
+    }
+
+    private boolean isUpToDate(long lastModified, @Nullable Object key) {
+      return myTrusted && myLastModified == lastModified && (myKey == null ? key == null : myKey.equals(key));
+    }
+  }
+}
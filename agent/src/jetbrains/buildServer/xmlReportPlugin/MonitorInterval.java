@@ -0,0 +1,40 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin;
+
+/**
+ * Interval between the checks for new reports: doubles while nothing changes
+ * and drops to the minimum as soon as some report is detected
+ */
+public class MonitorInterval {
+  private long myInterval;
+
+  /**
+   * @param changed true if the last check detected new or updated reports
+   * @param minInterval interval to use while reports keep appearing
+   * @param maxInterval the longest interval to use while nothing changes
+   * @return milliseconds to wait before the next check
+   */
+  public long next(boolean changed, long minInterval, long maxInterval) {
+    myInterval = changed || myInterval == 0 ? minInterval : Math.max(minInterval, Math.min(myInterval * 2, maxInterval));
+    return myInterval;
+  }
+
+  public long get() {
+    return myInterval;
+  }
+}
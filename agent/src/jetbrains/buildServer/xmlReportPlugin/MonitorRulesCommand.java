@@ -17,10 +17,16 @@
 package jetbrains.buildServer.xmlReportPlugin;
 
 import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import jetbrains.buildServer.agent.BuildProgressLogger;
 import jetbrains.buildServer.xmlReportPlugin.utils.LoggingUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * User: vbedrosova
@@ -40,6 +46,13 @@ public class MonitorRulesCommand {
     @NotNull BuildProgressLogger getThreadLogger();
 
     boolean isReparseUpdated();
+
+    boolean isWatchFileSystem();
+
+    /**
+     * Finishes the flow of the monitoring messages, called when the monitoring is over
+     */
+    void dispose();
   }
 
   public interface MonitorRulesListener {
@@ -57,6 +70,12 @@ public class MonitorRulesCommand {
   private final boolean myQuietMode;
 
   private boolean myFirstRun;
+  private boolean myModificationDetected;
+
+  @Nullable
+  private FileSystemWatcher myWatcher;
+  @NotNull
+  private final Set<File> myChangedFiles = new LinkedHashSet<File>();
 
   public MonitorRulesCommand(@NotNull MonitorRulesParameters parameters,
                              @NotNull ReportStateHolder reportStateHolder,
@@ -70,53 +89,141 @@ public class MonitorRulesCommand {
     myFirstRun = true;
   }
 
-  public void run() {
+  /**
+   * @return true if new or updated reports were detected
+   */
+  public boolean run() {
+    return run(false, null);
+  }
+
+  /**
+   * Checks all the files matching the rules even if file system events are available
+   * @return true if new or updated reports were detected
+   */
+  public boolean runFullScan() {
+    return run(true, null);
+  }
+
+  /**
+   * Checks the files matching the rules collected by a traversal shared with other commands
+   * @param collectedFiles all the files matching the rules
+   * @return true if new or updated reports were detected
+   * @see #isSharedScanSupported()
+   */
+  public boolean run(@NotNull Collection<File> collectedFiles) {
+    return run(false, collectedFiles);
+  }
+
+  /**
+   * Checks if the files for these rules can be collected by a traversal shared with other commands,
+   * otherwise the command collects them on its own
+   */
+  public boolean isSharedScanSupported() {
+    return !myParameters.isWatchFileSystem() && !myParameters.getRules().getWatchRoots().isEmpty();
+  }
+
+  @NotNull
+  public Rules getRules() {
+    return myParameters.getRules();
+  }
+
+  public void dispose() {
+    if (myWatcher != null) {
+      myWatcher.stop();
+      myWatcher = null;
+    }
+    myChangedFiles.clear();
+    myParameters.dispose();
+  }
+
+  private boolean run(boolean fullScan, @Nullable Collection<File> collectedFiles) {
     if (myFirstRun) {
       if (!myQuietMode) {
         logWatchingPaths();
       }
 
       myFirstRun = false;
+
+      if (myParameters.isWatchFileSystem()) {
+        myWatcher = startWatcher();
+      }
+      fullScan = true;
     }
 
-    monitorRules(
-      new MonitorRulesFileProcessor() {
-        public void processFile(@NotNull File file) {
-          if (acceptFile(file)) {
+    myModificationDetected = false;
 
-            final long fileLastModified = file.lastModified();
-            final long fileLength = file.length();
+    final MonitorRulesFileProcessor processor = new MonitorRulesFileProcessor() {
+      public void processFile(@NotNull File file) {
+        if (acceptFile(file)) {
 
-            if (timeConstraintsSatisfied(fileLastModified)) {
-              switch (myReportStateHolder.getReportState(file)) {
-                case ON_PROCESSING:
-                  return;
-                case UNKNOWN:
+          final long fileLastModified = file.lastModified();
+          final long fileLength = file.length();
+
+          if (timeConstraintsSatisfied(fileLastModified)) {
+            switch (myReportStateHolder.getReportState(file)) {
+              case ON_PROCESSING:
+                return;
+              case UNKNOWN:
+                myReportStateHolder.setReportState(file, ReportStateHolder.ReportState.ON_PROCESSING, fileLastModified, fileLength);
+                modificationDetected(file);
+                return;
+              case PROCESSED:
+                if (!myParameters.isReparseUpdated()) return;
+              case ERROR:
+              case OUT_OF_DATE:
+                final Long lastModified = myReportStateHolder.getLastModified(file);
+                final Long length = myReportStateHolder.getLength(file);
+
+                assert lastModified != null;
+                assert length != null;
+
+                if (fileLastModified > lastModified || fileLength > length) {
                   myReportStateHolder.setReportState(file, ReportStateHolder.ReportState.ON_PROCESSING, fileLastModified, fileLength);
                   modificationDetected(file);
-                  return;
-                case PROCESSED:
-                  if (!myParameters.isReparseUpdated()) return;
-                case ERROR:
-                case OUT_OF_DATE:
-                  final Long lastModified = myReportStateHolder.getLastModified(file);
-                  final Long length = myReportStateHolder.getLength(file);
-
-                  assert lastModified != null;
-                  assert length != null;
-
-                  if (fileLastModified > lastModified || fileLength > length) {
-                    myReportStateHolder.setReportState(file, ReportStateHolder.ReportState.ON_PROCESSING, fileLastModified, fileLength);
-                    modificationDetected(file);
-                  }
-              }
-            } else {
-              myReportStateHolder.setReportState(file, ReportStateHolder.ReportState.OUT_OF_DATE, fileLastModified, fileLength);
+                }
             }
+          } else {
+            myReportStateHolder.setReportState(file, ReportStateHolder.ReportState.OUT_OF_DATE, fileLastModified, fileLength);
           }
         }
       }
-    );
+    };
+
+    if (myWatcher == null) {
+      monitorFiles(processor, collectedFiles == null ? myParameters.getRules().collectFiles() : collectedFiles);
+      return myModificationDetected;
+    }
+
+    final Collection<File> changedFiles = myWatcher.collectChangedFiles();
+    if (changedFiles == null || fullScan) {
+      monitorFiles(processor, myParameters.getRules().collectFiles());
+    }
+    if (changedFiles != null) {
+      myChangedFiles.addAll(changedFiles);
+    }
+    monitorChangedFiles(processor);
+    return myModificationDetected;
+  }
+
+  @Nullable
+  private FileSystemWatcher startWatcher() {
+    final Rules rules = myParameters.getRules();
+    final Collection<File> roots = rules.getWatchRoots();
+    if (roots.isEmpty()) return null;
+
+    try {
+      final FileSystemWatcher watcher = new FileSystemWatcher(roots, new FileFilter() {
+        @Override
+        public boolean accept(final File dir) {
+          return rules.mayContainIncluded(dir);
+        }
+      });
+      watcher.start();
+      return watcher;
+    } catch (IOException e) {
+      LoggingUtils.LOG.warn("Failed to watch " + roots + " for file system events, will poll for reports instead: " + e.toString());
+      return null;
+    }
   }
 
   public void logWatchingPaths() {
@@ -144,6 +251,7 @@ public class MonitorRulesCommand {
   }
 
   private void modificationDetected(File file) {
+    myModificationDetected = true;
     myListener.modificationDetected(file);
   }
 
@@ -151,8 +259,23 @@ public class MonitorRulesCommand {
     void processFile(@NotNull File file);
   }
 
-  private void monitorRules(@NotNull MonitorRulesFileProcessor monitorRulesFileProcessor) {
-    for (File file : myParameters.getRules().collectFiles()) {
+  private void monitorFiles(@NotNull MonitorRulesFileProcessor monitorRulesFileProcessor, @NotNull Collection<File> files) {
+    for (File file : files) {
+      monitorRulesFileProcessor.processFile(file);
+    }
+  }
+
+  private void monitorChangedFiles(@NotNull MonitorRulesFileProcessor monitorRulesFileProcessor) {
+    for (Iterator<File> it = myChangedFiles.iterator(); it.hasNext();) {
+      final File file = it.next();
+      if (!myParameters.getRules().isIncluded(file)) {
+        it.remove();
+        continue;
+      }
+      // a report changed while being parsed must be checked once more when parsing finishes
+      if (myReportStateHolder.getReportState(file) == ReportStateHolder.ReportState.ON_PROCESSING) continue;
+
+      it.remove();
       monitorRulesFileProcessor.processFile(file);
     }
   }
@@ -16,12 +16,17 @@
 
 package jetbrains.buildServer.xmlReportPlugin;
 
+import com.intellij.openapi.util.SystemInfo;
 import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import jetbrains.buildServer.util.CollectionsUtil;
 import jetbrains.buildServer.util.Converter;
-import jetbrains.buildServer.util.pathMatcher.AntPatternFileCollector;
+import jetbrains.buildServer.util.FileUtil;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -34,10 +39,33 @@ public class OptimizingIncludeExcludeRules implements Rules {
   private final File myBaseDir;
   @NotNull
   private final Collection<String> myBody;
+  @NotNull
+  private final PathRulesMatcher myMatcher = new PathRulesMatcher(SystemInfo.isFileSystemCaseSensitive);
+  @NotNull
+  private final List<File> myWatchRoots = new ArrayList<File>();
+  @NotNull
+  private final IncrementalDirectoryScanner myScanner;
 
   public OptimizingIncludeExcludeRules(@NotNull final File baseDir, @NotNull Collection<String> body) {
     myBaseDir = baseDir;
     myBody = body;
+    for (String rule : body) {
+      final String pattern = toPath(FileUtil.resolvePath(baseDir, getRulePath(rule)));
+      final boolean include = isIncludeRule(rule);
+      myMatcher.addRule(include, pattern);
+      if (include) addWatchRoot(new File(getRootPath(pattern)));
+    }
+    myScanner = new IncrementalDirectoryScanner(new FileFilter() {
+      @Override
+      public boolean accept(final File file) {
+        return isIncluded(file);
+      }
+    }, new FileFilter() {
+      @Override
+      public boolean accept(final File dir) {
+        return mayContainIncluded(dir);
+      }
+    });
   }
 
   @NotNull
@@ -72,16 +100,54 @@ public class OptimizingIncludeExcludeRules implements Rules {
   @NotNull
   @Override
   public Collection<File> collectFiles() {
-    return myBaseDir.exists() ? AntPatternFileCollector.scanDir(myBaseDir, getRulesArray(), getScanOptions()) : Collections.emptyList();
+    return myBaseDir.exists() ? myScanner.scan(getWatchRoots()) : Collections.<File>emptyList();
   }
 
   @NotNull
-  private String[] getRulesArray() {
-    return  myBody.toArray(new String[0]);
+  @Override
+  public Collection<File> getWatchRoots() {
+    return myWatchRoots;
   }
 
+  @Override
+  public boolean isIncluded(@NotNull final File file) {
+    return myMatcher.isIncluded(toPath(file));
+  }
+
+  @Override
+  public boolean mayContainIncluded(@NotNull final File dir) {
+    return myMatcher.mayContainIncluded(toPath(dir));
+  }
+
+  private void addWatchRoot(@NotNull File root) {
+    if (isUnderAny(root, myWatchRoots)) return;
+
+    for (Iterator<File> it = myWatchRoots.iterator(); it.hasNext();) {
+      if (FileUtil.isAncestor(root, it.next(), false)) it.remove();
+    }
+    myWatchRoots.add(root);
+  }
+
+  private static boolean isUnderAny(@NotNull File file, @NotNull Collection<File> roots) {
+    for (File root : roots) {
+      if (FileUtil.isAncestor(root, file, false)) return true;
+    }
+    return false;
+  }
+
+  @NotNull
+  private static String toPath(@NotNull File file) {
+    return FileUtil.normalizeAbsolutePath(file.getAbsolutePath()).replace('\\', '/');
+  }
+
+  // the deepest directory which contains all the files matching the rule
   @NotNull
-  private AntPatternFileCollector.ScanOption[] getScanOptions() {
-    return new AntPatternFileCollector.ScanOption[]{AntPatternFileCollector.ScanOption.USE_RULE_STRICTNESS, AntPatternFileCollector.ScanOption.ALLOW_EXTERNAL_SCAN};
+  private static String getRootPath(@NotNull String pattern) {
+    final int star = pattern.indexOf('*');
+    final int question = pattern.indexOf('?');
+    final int wildcard = star < 0 ? question : question < 0 ? star : Math.min(star, question);
+
+    final int rootEnd = pattern.lastIndexOf('/', wildcard >= 0 ? wildcard : pattern.length() - 1);
+    return rootEnd <= 0 ? "/" : pattern.substring(0, rootEnd);
   }
 }
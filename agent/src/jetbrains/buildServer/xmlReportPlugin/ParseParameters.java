@@ -32,6 +32,9 @@ import org.jetbrains.annotations.NotNull;
 public interface ParseParameters {
   boolean isVerbose();
 
+  /**
+   * All the messages of one parsing go to the same flow, so the reports parsed in parallel don't mix up in the build log
+   */
   @NotNull
   BuildProgressLogger getThreadLogger();
 
@@ -44,6 +47,16 @@ public interface ParseParameters {
   @NotNull
   TestReporter getTestReporter();
 
+  /**
+   * Passes on what the reporters given out still hold, e.g. the passed test statistics, called when the parsing is over
+   */
+  void flush();
+
+  /**
+   * Finishes the flow of the parsing messages, called when the parsing and the logging of its results are over
+   */
+  void dispose();
+
   @NotNull
   Map<String, String> getParameters();
 
@@ -54,6 +54,14 @@ public class ParseReportCommand implements Runnable {
   }
 
   public void run() {
+    try {
+      parse();
+    } finally {
+      myParameters.dispose();
+    }
+  }
+
+  private void parse() {
     final Parser parser = myParserFactory.createParser(myParameters);
 
     boolean finished;
@@ -69,6 +77,8 @@ public class ParseReportCommand implements Runnable {
       LoggingUtils.logException("Unexpected exception occurred while parsing " + myFile, t, myParameters.getThreadLogger());
     }
 
+    myParameters.flush();
+
     final ParsingResult parsingResult = parser.getParsingResult();
     assert parsingResult != null;
 
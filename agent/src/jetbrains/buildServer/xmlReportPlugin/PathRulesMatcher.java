@@ -0,0 +1,239 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Include and exclude Ant-style path rules compiled into a trie of their literal leading path segments.
+ * Paths are matched segment by segment, so only the rules sharing the path prefix are ever checked.
+ *
+ * The most strict matching rule wins, the strictness is the position of the first wildcard in the rule.
+ * The exclude rule wins over the include one with the same strictness.
+ */
+public class PathRulesMatcher {
+  @NotNull
+  private final Node myRoot = new Node();
+  private final boolean myCaseSensitive;
+
+  /**
+   * @param caseSensitive false to match the paths ignoring case, as the file system on Windows does
+   */
+  public PathRulesMatcher(final boolean caseSensitive) {
+    myCaseSensitive = caseSensitive;
+  }
+
+  /**
+   * @param include true for include rule, false for exclude one
+   * @param pattern absolute '/'-separated path, possibly containing '*', '?' and '**' wildcards;
+   *                rule without wildcards matches the path itself and everything under it
+   */
+  public void addRule(final boolean include, @NotNull String pattern) {
+    final int wildcard = indexOfWildcard(pattern);
+    final int strictness = wildcard < 0 ? pattern.length() + 1 : wildcard;
+
+    final String[] segments = split(pattern);
+    Node node = myRoot;
+    int i = 0;
+    for (; i < segments.length && indexOfWildcard(segments[i]) < 0; ++i) {
+      if (include) node.myHasIncludesBelow = true;
+      node = node.getOrCreateChild(segments[i]);
+    }
+
+    final List<Segment> tail = new ArrayList<Segment>();
+    for (; i < segments.length; ++i) {
+      tail.add(new Segment(segments[i]));
+    }
+    if (wildcard < 0) tail.add(Segment.ANY_DIRS);
+
+    node.myRules.add(new Rule(include, strictness, tail.toArray(new Segment[tail.size()])));
+  }
+
+  public boolean isIncluded(@NotNull String path) {
+    final String[] segments = split(path);
+
+    Rule matched = null;
+    Node node = myRoot;
+    int depth = 0;
+    while (node != null) {
+      for (Rule rule : node.myRules) {
+        if (matched != null && (rule.myStrictness < matched.myStrictness || rule.myStrictness == matched.myStrictness && rule.myInclude)) continue;
+        if (matches(rule.myTail, 0, segments, depth)) matched = rule;
+      }
+      node = depth < segments.length ? node.myChildren.get(segments[depth]) : null;
+      ++depth;
+    }
+    return matched != null && matched.myInclude;
+  }
+
+  /**
+   * Checks if some path under the given directory may be included, so that the directory must be traversed
+   */
+  public boolean mayContainIncluded(@NotNull String dirPath) {
+    final String[] segments = split(dirPath);
+
+    int includeStrictness = -1;
+    int excludeStrictness = -1;
+    Node node = myRoot;
+    int depth = 0;
+    while (node != null) {
+      for (Rule rule : node.myRules) {
+        if (rule.myInclude) {
+          if (rule.myStrictness > includeStrictness && matchesStart(rule.myTail, 0, segments, depth)) includeStrictness = rule.myStrictness;
+        } else {
+          if (rule.myStrictness > excludeStrictness && coversSubtree(rule.myTail, segments, depth)) excludeStrictness = rule.myStrictness;
+        }
+      }
+      if (depth == segments.length) {
+        // the rules deeper in the trie start with literal segments which are all under the directory
+        if (node.myHasIncludesBelow) return true;
+        break;
+      }
+      node = node.myChildren.get(segments[depth]);
+      ++depth;
+    }
+    return includeStrictness > excludeStrictness;
+  }
+
+  private static boolean matches(@NotNull Segment[] tail, int t, @NotNull String[] path, int p) {
+    for (; t < tail.length && !tail[t].myAnyDirs; ++t, ++p) {
+      if (p == path.length || !tail[t].matches(path[p])) return false;
+    }
+    if (t == tail.length) return p == path.length;
+
+    while (t < tail.length && tail[t].myAnyDirs) ++t;
+    if (t == tail.length) return true;
+
+    for (; p < path.length; ++p) {
+      if (matches(tail, t, path, p)) return true;
+    }
+    return false;
+  }
+
+  // checks if some path strictly under the given one may match
+  private static boolean matchesStart(@NotNull Segment[] tail, int t, @NotNull String[] path, int p) {
+    for (; t < tail.length && !tail[t].myAnyDirs; ++t, ++p) {
+      if (p == path.length) return true;
+      if (!tail[t].matches(path[p])) return false;
+    }
+    return t < tail.length;
+  }
+
+  // checks if all the paths strictly under the given one match
+  private static boolean coversSubtree(@NotNull Segment[] tail, @NotNull String[] path, int p) {
+    return tail.length > 0 && tail[tail.length - 1].myAnyDirs && matches(tail, 0, path, p);
+  }
+
+  @NotNull
+  private String[] split(@NotNull String path) {
+    if (!myCaseSensitive) path = path.toLowerCase(Locale.ENGLISH);
+    final List<String> segments = new ArrayList<String>();
+    int start = 0;
+    for (int i = 0; i <= path.length(); ++i) {
+      if (i == path.length() || path.charAt(i) == '/') {
+        if (i > start) segments.add(path.substring(start, i));
+        start = i + 1;
+      }
+    }
+    return segments.toArray(new String[segments.size()]);
+  }
+
+  private static int indexOfWildcard(@NotNull String pattern) {
+    final int star = pattern.indexOf('*');
+    final int question = pattern.indexOf('?');
+    return star < 0 ? question : question < 0 ? star : Math.min(star, question);
+  }
+
+  private static final class Node {
+    @NotNull
+    private final Map<String, Node> myChildren = new HashMap<String, Node>();
+    @NotNull
+    private final List<Rule> myRules = new ArrayList<Rule>();
+    // some include rule is located in the descendant node
+    private boolean myHasIncludesBelow;
+
+    @NotNull
+    private Node getOrCreateChild(@NotNull String segment) {
+      Node child = myChildren.get(segment);
+      if (child == null) {
+        child = new Node();
+        myChildren.put(segment, child);
+      }
+      return child;
+    }
+  }
+
+  private static final class Rule {
+    private final boolean myInclude;
+    private final int myStrictness;
+    @NotNull
+    private final Segment[] myTail;
+
+    private Rule(final boolean include, final int strictness, @NotNull Segment[] tail) {
+      myInclude = include;
+      myStrictness = strictness;
+      myTail = tail;
+    }
+  }
+
+  private static final class Segment {
+    private static final Segment ANY_DIRS = new Segment("**");
+
+    @NotNull
+    private final String myPattern;
+    private final boolean myAnyDirs;
+    private final boolean myWildcard;
+
+    private Segment(@NotNull String pattern) {
+      myPattern = pattern;
+      myAnyDirs = "**".equals(pattern);
+      myWildcard = indexOfWildcard(pattern) >= 0;
+    }
+
+    private boolean matches(@NotNull String name) {
+      return myWildcard ? matchesWildcard(myPattern, name) : myPattern.equals(name);
+    }
+
+    private static boolean matchesWildcard(@NotNull String pattern, @NotNull String name) {
+      int p = 0;
+      int n = 0;
+      int star = -1;
+      int starMatch = 0;
+      while (n < name.length()) {
+        if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == name.charAt(n))) {
+          ++p;
+          ++n;
+        } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+          star = p++;
+          starMatch = n;
+        } else if (star >= 0) {
+          p = star + 1;
+          n = ++starMatch;
+        } else {
+          return false;
+        }
+      }
+      while (p < pattern.length() && pattern.charAt(p) == '*') ++p;
+      return p == pattern.length();
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import jetbrains.buildServer.xmlReportPlugin.utils.LoggingUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Runs the checks for new reports of all the active processing contexts on a shared scheduled executor.
+ * Each check is scheduled after the previous one of the same context completes.
+ */
+public class ReportsMonitor {
+  public interface Check {
+    /**
+     * @return milliseconds to wait before the next check
+     */
+    long run();
+  }
+
+  @NotNull
+  private final ScheduledExecutorService myExecutor;
+  @NotNull
+  private final Set<Handle> myActive = new LinkedHashSet<Handle>();
+
+  public ReportsMonitor(@NotNull ScheduledExecutorService executor) {
+    myExecutor = executor;
+  }
+
+  /**
+   * Starts running the check periodically, the first run is scheduled immediately
+   */
+  @NotNull
+  public Handle start(@NotNull Check check) {
+    final Handle handle = new Handle(check);
+    synchronized (myActive) {
+      myActive.add(handle);
+    }
+    handle.schedule(0);
+    return handle;
+  }
+
+  /**
+   * Stops all the active checks waiting for the running ones to complete
+   */
+  public void stopAll() {
+    final Handle[] handles;
+    synchronized (myActive) {
+      handles = myActive.toArray(new Handle[myActive.size()]);
+    }
+    for (Handle handle : handles) {
+      handle.stop();
+    }
+  }
+
+  public final class Handle implements Runnable {
+    @NotNull
+    private final Check myCheck;
+    @Nullable
+    private ScheduledFuture<?> myFuture;
+    private boolean myStopped;
+
+    private Handle(@NotNull Check check) {
+      myCheck = check;
+    }
+
+    public synchronized void run() {
+      if (myStopped) return;
+
+      long delay = XmlReportPluginUtil.DEFAULT_MONITOR_MAX_INTERVAL;
+      try {
+        delay = myCheck.run();
+      } catch (Throwable e) {
+        LoggingUtils.LOG.warn("Exception occurred while checking for new reports", e);
+      } finally {
+        schedule(delay);
+      }
+    }
+
+    /**
+     * Cancels the scheduled check and waits for the running one to complete
+     */
+    public void stop() {
+      synchronized (this) {
+        myStopped = true;
+        if (myFuture != null) {
+          myFuture.cancel(false);
+          myFuture = null;
+        }
+      }
+      synchronized (myActive) {
+        myActive.remove(this);
+      }
+    }
+
+    private synchronized void schedule(long delay) {
+      if (myStopped) return;
+      try {
+        myFuture = myExecutor.schedule(this, delay, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        // executor is shut down together with the agent
+        myStopped = true;
+      }
+    }
+  }
+}
@@ -29,4 +29,24 @@ public interface Rules {
   @NotNull Collection<String> getBody();
   @NotNull Collection<File> getPaths();
   @NotNull Collection<File> collectFiles();
+
+  /**
+   * Gets directories which contain all the files matching these rules
+   * @return directories to watch recursively, empty if the rules are cheap enough to be polled
+   */
+  @NotNull Collection<File> getWatchRoots();
+
+  /**
+   * Checks if the given file matches these rules
+   * @param file file to check
+   * @return true if the file would be collected by {@link #collectFiles()}
+   */
+  boolean isIncluded(@NotNull File file);
+
+  /**
+   * Checks if files matching these rules may be located under the given directory
+   * @param dir directory to check
+   * @return false if the directory may be skipped without listing it
+   */
+  boolean mayContainIncluded(@NotNull File dir);
 }
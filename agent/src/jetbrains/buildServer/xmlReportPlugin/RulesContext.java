@@ -69,8 +69,8 @@ public class RulesContext {
     myExecutedTasks.get(stage).add(task);
   }
 
-  public void addParseFactory(@NotNull final ParserFactory factory) {
-    myExecutedTasks.get(factory.getParsingStage()).add(new FactoryTask(factory, getRulesData(), getRulesState()));
+  public void addParseFactory(@NotNull final ExecutorService executor, @NotNull final ParserFactory factory) {
+    myExecutedTasks.get(factory.getParsingStage()).add(new FactoryTask(executor, factory, getRulesData(), getRulesState()));
   }
 
   public void finish() throws ExecutionException, InterruptedException {
@@ -121,14 +121,22 @@ public class RulesContext {
 
   private static class FactoryTask implements ExecuteTask {
 
+    @NotNull
+    private final ExecutorService myExecutor;
     @NotNull
     private final ParserFactory myFactory;
     @NotNull
     private final XmlReportPlugin.RulesData myRulesData;
     @NotNull
     private final RulesState myRulesState;
+    @NotNull
+    private final List<CommandTask> myTasks = new ArrayList<CommandTask>();
 
-    public FactoryTask(@NotNull final ParserFactory factory, @NotNull final XmlReportPlugin.RulesData rulesData, @NotNull final RulesState rulesState) {
+    public FactoryTask(@NotNull final ExecutorService executor,
+                       @NotNull final ParserFactory factory,
+                       @NotNull final XmlReportPlugin.RulesData rulesData,
+                       @NotNull final RulesState rulesState) {
+      myExecutor = executor;
       myFactory = factory;
       myRulesData = rulesData;
       myRulesState = rulesState;
@@ -137,13 +145,17 @@ public class RulesContext {
     @Override
     public void start() {
       for (File file : myRulesData.getMonitorRulesParameters().getRules().collectFiles()) {
-        final ParseReportCommand command = new ParseReportCommand(file, myRulesData.getParseReportParameters(), myRulesState, myFactory);
-        command.run();
+        final CommandTask task = new CommandTask(myExecutor, new ParseReportCommand(file, myRulesData.getParseReportParameters(), myRulesState, myFactory));
+        task.start();
+        myTasks.add(task);
       }
     }
 
     @Override
-    public void join() {
+    public void join() throws ExecutionException, InterruptedException {
+      for (CommandTask task : myTasks) {
+        task.join();
+      }
     }
   }
 
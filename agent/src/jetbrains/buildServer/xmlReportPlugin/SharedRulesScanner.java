@@ -0,0 +1,106 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.*;
+import jetbrains.buildServer.util.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Collects the files matching several rules with a single traversal of the union of their watch roots
+ */
+public class SharedRulesScanner {
+  @NotNull
+  private List<Rules> myRules = Collections.emptyList();
+  @NotNull
+  private List<File> myRoots = Collections.emptyList();
+  @Nullable
+  private IncrementalDirectoryScanner myScanner;
+
+  /**
+   * @param rules rules with non-empty {@link Rules#getWatchRoots()}
+   * @param fullScan true to list all the directories again, even those not modified since the previous scan
+   * @return files matching each of the rules
+   */
+  @NotNull
+  public synchronized Map<Rules, List<File>> scan(@NotNull List<Rules> rules, boolean fullScan) {
+    if (myScanner == null || !myRules.equals(rules)) {
+      // the scanner caches the filtering results, so it can't be reused for the different rules
+      myRules = new ArrayList<Rules>(rules);
+      myRoots = getRoots(myRules);
+      myScanner = createScanner(myRules);
+    }
+
+    final Map<Rules, List<File>> result = new IdentityHashMap<Rules, List<File>>();
+    for (Rules r : myRules) {
+      result.put(r, new ArrayList<File>());
+    }
+    for (File file : myScanner.scan(myRoots, fullScan)) {
+      for (Rules r : myRules) {
+        if (r.isIncluded(file)) result.get(r).add(file);
+      }
+    }
+    return result;
+  }
+
+  @NotNull
+  private static IncrementalDirectoryScanner createScanner(@NotNull final List<Rules> rules) {
+    return new IncrementalDirectoryScanner(new FileFilter() {
+      @Override
+      public boolean accept(final File file) {
+        for (Rules r : rules) {
+          if (r.isIncluded(file)) return true;
+        }
+        return false;
+      }
+    }, new FileFilter() {
+      @Override
+      public boolean accept(final File dir) {
+        for (Rules r : rules) {
+          if (r.mayContainIncluded(dir)) return true;
+        }
+        return false;
+      }
+    });
+  }
+
+  @NotNull
+  private static List<File> getRoots(@NotNull List<Rules> rules) {
+    final List<File> roots = new ArrayList<File>();
+    for (Rules r : rules) {
+      for (File root : r.getWatchRoots()) {
+        if (isUnderAny(root, roots)) continue;
+
+        for (Iterator<File> it = roots.iterator(); it.hasNext();) {
+          if (FileUtil.isAncestor(root, it.next(), false)) it.remove();
+        }
+        roots.add(root);
+      }
+    }
+    return roots;
+  }
+
+  private static boolean isUnderAny(@NotNull File file, @NotNull Collection<File> roots) {
+    for (File root : roots) {
+      if (FileUtil.isAncestor(root, file, false)) return true;
+    }
+    return false;
+  }
+}
@@ -20,6 +20,7 @@ import java.io.File;
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import jetbrains.buildServer.BuildProblemData;
@@ -33,9 +34,12 @@ import jetbrains.buildServer.util.impl.Lazy;
 import jetbrains.buildServer.util.positioning.PositionAware;
 import jetbrains.buildServer.util.positioning.PositionConstraint;
 import jetbrains.buildServer.xmlReportPlugin.duplicates.DuplicationReporter;
+import jetbrains.buildServer.xmlReportPlugin.duplicates.ReportedDuplicates;
 import jetbrains.buildServer.xmlReportPlugin.duplicates.TeamCityDuplicationReporter;
 import jetbrains.buildServer.xmlReportPlugin.inspections.InspectionReporter;
 import jetbrains.buildServer.xmlReportPlugin.inspections.TeamCityInspectionReporter;
+import jetbrains.buildServer.xmlReportPlugin.tests.FailuresOnlyTestReporter;
+import jetbrains.buildServer.xmlReportPlugin.tests.PassedTestStatistics;
 import jetbrains.buildServer.xmlReportPlugin.tests.TeamCityTestReporter;
 import jetbrains.buildServer.xmlReportPlugin.tests.TestReporter;
 import jetbrains.buildServer.xmlReportPlugin.utils.LoggingUtils;
@@ -52,13 +56,24 @@ public class XmlReportPlugin extends AgentLifeCycleAdapter implements RulesProce
   private final jetbrains.buildServer.agent.inspections.InspectionReporter myInspectionReporter;
   @NotNull
   private final DuplicatesReporter myDuplicatesReporter;
+  @NotNull
+  private volatile ReportedDuplicates myReportedDuplicates = new ReportedDuplicates();
+  @Nullable
+  private volatile PassedTestStatistics myPassedTestStatistics;
   @NotNull private final ExtensionsProvider myExtensionProvider;
 
   @Nullable
   private AgentRunningBuild myBuild;
 
   @NotNull
-  private final ExecutorService myParseExecutor;
+  private volatile ExecutorService myParseExecutor;
+  private int myParseThreads;
+
+  @NotNull
+  private final ScheduledExecutorService myMonitorExecutor;
+
+  @NotNull
+  private final ReportsMonitor myReportsMonitor;
 
   @NotNull
   private final Lazy<Map<String, ParserFactory>> myParserFactoryMap = new Lazy<Map<String, ParserFactory>>() {
@@ -96,15 +111,30 @@ public class XmlReportPlugin extends AgentLifeCycleAdapter implements RulesProce
     myInspectionReporter = inspectionReporter;
     myDuplicatesReporter = duplicatesReporter;
 
-    myParseExecutor = createExecutor();
+    myParseThreads = 1;
+    myParseExecutor = createExecutor(myParseThreads);
+    myMonitorExecutor = ExecutorsFactory.newFixedScheduledDaemonExecutor("xml-report-plugin-monitor", 1);
+    myReportsMonitor = new ReportsMonitor(myMonitorExecutor);
   }
 
   @Override
   public void buildStarted(@NotNull AgentRunningBuild runningBuild) {
     myBuild = runningBuild;
+    myReportedDuplicates = new ReportedDuplicates();
+    myPassedTestStatistics = new PassedTestStatistics(runningBuild.getBuildLogger());
+    updateParseExecutor(getParseThreads(runningBuild.getSharedConfigParameters()));
     initBuildProcessingContext(runningBuild);
   }
 
+  private synchronized void updateParseExecutor(int threads) {
+    if (threads == myParseThreads) return;
+
+    // all the reports of the previous build were parsed before it finished
+    myParseExecutor.shutdown();
+    myParseThreads = threads;
+    myParseExecutor = createExecutor(threads);
+  }
+
   private void initBuildProcessingContext(final @NotNull AgentRunningBuild runningBuild) {
     myBuildProcessingContext = new ProcessingContext(new ArrayList<RulesContext>());
 
@@ -184,10 +214,14 @@ public class XmlReportPlugin extends AgentLifeCycleAdapter implements RulesProce
     finishProcessing(getBuildProcessingContext(), true);
     myBuild = null;
     myBuildProcessingContext = null;
+    myReportedDuplicates = new ReportedDuplicates();
+    myPassedTestStatistics = null;
   }
 
   @Override
   public void agentShutdown() {
+    myReportsMonitor.stopAll();
+    shutdownExecutor(myMonitorExecutor);
     shutdownExecutor(myParseExecutor);
   }
 
@@ -198,7 +232,7 @@ public class XmlReportPlugin extends AgentLifeCycleAdapter implements RulesProce
     final RulesContext rulesContext = new RulesContext(rulesData, fileStateHolder);
     switch (parserFactory.getParsingStage()) {
       case BEFORE_FINISH:
-        rulesContext.addParseFactory(parserFactory);
+        rulesContext.addParseFactory(myParseExecutor, parserFactory);
         break;
       case RUNTIME:
         rulesContext.setMonitorRulesCommand(new MonitorRulesCommand(rulesData.getMonitorRulesParameters(), rulesContext.getRulesState(), myQuietMode,
@@ -214,25 +248,39 @@ public class XmlReportPlugin extends AgentLifeCycleAdapter implements RulesProce
   }
 
   private void startProcessing(@NotNull final ProcessingContext processingContext) {
-    Thread monitor = processingContext.monitorThread;
-    if (isStarted(monitor)) return;
+    if (isStarted(processingContext.monitorHandle)) return;
     if (isRulesEmpty(processingContext)) return;
 
     processingContext.finished = false;
-    monitor = new Thread(new Runnable() {
-      public void run() {
-        while (!processingContext.finished) {
-          processAllRules(processingContext);
-
-          try {
-            Thread.sleep(500L);
-          } catch (InterruptedException e) {
-            getBuild().getBuildLogger().exception(e);
-          }
+    processingContext.monitorHandle = myReportsMonitor.start(new ReportsMonitor.Check() {
+      public long run() {
+        final boolean changed = processAllRules(processingContext);
+
+        final long previousInterval = processingContext.monitorInterval.get();
+        final long interval = processingContext.monitorInterval.next(changed, getMonitorMinInterval(processingContext), getMonitorMaxInterval(processingContext));
+        if (interval != previousInterval) {
+          LoggingUtils.LOG.debug("Checking for new reports every " + interval + " ms");
         }
+        return interval;
       }
     });
-    (processingContext.monitorThread = monitor).start();
+  }
+
+  // the most frequent checks requested by any of the features win
+  private long getMonitorMinInterval(@NotNull final ProcessingContext processingContext) {
+    long result = Long.MAX_VALUE;
+    for (RulesContext rulesContext : processingContext.rulesContexts) {
+      result = Math.min(result, rulesContext.getRulesData().getMonitorMinInterval());
+    }
+    return result == Long.MAX_VALUE ? DEFAULT_MONITOR_MIN_INTERVAL : result;
+  }
+
+  private long getMonitorMaxInterval(@NotNull final ProcessingContext processingContext) {
+    long result = Long.MAX_VALUE;
+    for (RulesContext rulesContext : processingContext.rulesContexts) {
+      result = Math.min(result, rulesContext.getRulesData().getMonitorMaxInterval());
+    }
+    return result == Long.MAX_VALUE ? DEFAULT_MONITOR_MAX_INTERVAL : result;
   }
 
   private boolean isRulesEmpty(final @NotNull ProcessingContext processingContext) {
@@ -240,19 +288,44 @@ public class XmlReportPlugin extends AgentLifeCycleAdapter implements RulesProce
   }
 
   @Contract("null -> false")
-  private boolean isStarted(@Nullable final Thread monitor) {
+  private boolean isStarted(@Nullable final ReportsMonitor.Handle monitor) {
     return monitor != null;
   }
 
-  private void processAllRules(final @NotNull ProcessingContext processingContext) {
+  private boolean processAllRules(final @NotNull ProcessingContext processingContext) {
+    return processAllRules(processingContext, false);
+  }
+
+  /**
+   * @return true if new or updated reports were detected
+   */
+  private boolean processAllRules(final @NotNull ProcessingContext processingContext, boolean fullScan) {
+    boolean changed = false;
+    final List<MonitorRulesCommand> sharedScanCommands = new ArrayList<MonitorRulesCommand>();
     for (RulesContext rulesContext : processingContext.rulesContexts) {
       final MonitorRulesCommand monitorRules = rulesContext.getMonitorRulesCommand();
-      if (monitorRules != null) monitorRules.run();
+      if (monitorRules == null) continue;
+
+      if (monitorRules.isSharedScanSupported()) sharedScanCommands.add(monitorRules);
+      else if (fullScan) changed |= monitorRules.runFullScan();
+      else changed |= monitorRules.run();
     }
+    if (sharedScanCommands.isEmpty()) return changed;
+
+    // traverse the directories watched by several report types only once
+    final List<Rules> rules = new ArrayList<Rules>(sharedScanCommands.size());
+    for (MonitorRulesCommand monitorRules : sharedScanCommands) {
+      rules.add(monitorRules.getRules());
+    }
+    final Map<Rules, List<File>> files = processingContext.sharedScanner.scan(rules, fullScan);
+    for (MonitorRulesCommand monitorRules : sharedScanCommands) {
+      changed |= monitorRules.run(files.get(monitorRules.getRules()));
+    }
+    return changed;
   }
 
   private void finishProcessing(@NotNull final ProcessingContext processingContext, boolean fullFinish) {
-    Thread monitor = processingContext.monitorThread;
+    ReportsMonitor.Handle monitor = processingContext.monitorHandle;
     if (!isStarted(monitor) && isRulesEmpty(processingContext)) return;
     if (!isStarted(monitor)) {
       // process all rules even if we do not have build steps
@@ -261,19 +334,23 @@ public class XmlReportPlugin extends AgentLifeCycleAdapter implements RulesProce
 
     processingContext.finished = true;
     try {
-      monitor = processingContext.monitorThread;
-      processingContext.monitorThread = null;
+      monitor = processingContext.monitorHandle;
+      processingContext.monitorHandle = null;
       if (isStarted(monitor)) {
-        monitor.join();
+        monitor.stop();
       }
 
-
       for (RulesContext rulesContext : processingContext.rulesContexts) {
         rulesContext.waitRuntimeParsing();
         rulesContext.clearRuntimeParseTasks();
+      }
+
+      processAllRules(processingContext, true);
 
+      for (RulesContext rulesContext : processingContext.rulesContexts) {
         final MonitorRulesCommand monitorRules = rulesContext.getMonitorRulesCommand();
-        if (monitorRules != null) monitorRules.run();
+        if (monitorRules != null && fullFinish) monitorRules.dispose();
+
         if (fullFinish) rulesContext.finish();
         else rulesContext.waitRuntimeParsing();
 
@@ -312,8 +389,8 @@ public class XmlReportPlugin extends AgentLifeCycleAdapter implements RulesProce
     }
   }
 
-  private static ExecutorService createExecutor() {
-    return ExecutorsFactory.newFixedDaemonExecutor("xml-report-plugin", 1);
+  private static ExecutorService createExecutor(int threads) {
+    return ExecutorsFactory.newFixedDaemonExecutor("xml-report-plugin", threads);
   }
 
   @SuppressWarnings("ConstantConditions")
@@ -459,7 +536,12 @@ public class XmlReportPlugin extends AgentLifeCycleAdapter implements RulesProce
               }
             }, logger);
           }
-          result.logAsTotalResult(rulesContext.getRulesData().getParseReportParameters());
+          final ParseParameters parameters = rulesContext.getRulesData().getParseReportParameters();
+          try {
+            result.logAsTotalResult(parameters);
+          } finally {
+            parameters.dispose();
+          }
         }
       }, logger);
   }
@@ -564,9 +646,21 @@ public class XmlReportPlugin extends AgentLifeCycleAdapter implements RulesProce
       return isFailBuildIfParsingFailed(myParameters);
     }
 
+    public long getMonitorMinInterval() {
+      return XmlReportPluginUtil.getMonitorMinInterval(myParameters);
+    }
+
+    public long getMonitorMaxInterval() {
+      return XmlReportPluginUtil.getMonitorMaxInterval(myParameters);
+    }
+
     @NotNull
     public MonitorRulesCommand.MonitorRulesParameters getMonitorRulesParameters() {
       return new MonitorRulesCommand.MonitorRulesParameters() {
+        // one parameters instance per monitoring command
+        @Nullable
+        private FlowLogger myFlowLogger;
+
         @NotNull
         @Override
         public Rules getRules() {
@@ -592,20 +686,44 @@ public class XmlReportPlugin extends AgentLifeCycleAdapter implements RulesProce
 
         @NotNull
         @Override
-        public BuildProgressLogger getThreadLogger() {
-          return getBuild().getBuildLogger().getThreadLogger();
+        public synchronized BuildProgressLogger getThreadLogger() {
+          if (myFlowLogger == null) {
+            // new flow with the build flow as the parent one
+            myFlowLogger = getBuild().getBuildLogger().getThreadLogger();
+            myFlowLogger.startFlow();
+          }
+          return myFlowLogger;
         }
 
         @Override
         public boolean isReparseUpdated() {
           return isReparseUpdatedReports(myParameters);
         }
+
+        @Override
+        public boolean isWatchFileSystem() {
+          return XmlReportPluginUtil.isWatchFileSystem(myParameters);
+        }
+
+        @Override
+        public synchronized void dispose() {
+          if (myFlowLogger != null) {
+            myFlowLogger.disposeFlow();
+            myFlowLogger = null;
+          }
+        }
       };
     }
 
     @NotNull
     public ParseParameters getParseReportParameters() {
       return new ParseParameters() {
+        // one parameters instance per parsing
+        @NotNull
+        private final List<FailuresOnlyTestReporter> myFailuresOnlyReporters = new ArrayList<FailuresOnlyTestReporter>(1);
+        @Nullable
+        private FlowLogger myFlowLogger;
+
         @Override
         public boolean isVerbose() {
           return isOutputVerbose(myParameters);
@@ -613,8 +731,13 @@ public class XmlReportPlugin extends AgentLifeCycleAdapter implements RulesProce
 
         @NotNull
         @Override
-        public BuildProgressLogger getThreadLogger() {
-          return getBuild().getBuildLogger().getThreadLogger();
+        public synchronized BuildProgressLogger getThreadLogger() {
+          if (myFlowLogger == null) {
+            // new flow with the build flow as the parent one
+            myFlowLogger = getBuild().getBuildLogger().getThreadLogger();
+            myFlowLogger.startFlow();
+          }
+          return myFlowLogger;
         }
 
         @NotNull
@@ -637,13 +760,35 @@ public class XmlReportPlugin extends AgentLifeCycleAdapter implements RulesProce
         @NotNull
         @Override
         public DuplicationReporter getDuplicationReporter() {
-          return new TeamCityDuplicationReporter(myDuplicatesReporter, getBuild().getBuildLogger(), getCheckoutDir().getAbsolutePath(), getBuildProblemType(getType(), "DupFailure"));
+          return new TeamCityDuplicationReporter(myDuplicatesReporter, getBuild().getBuildLogger(), getCheckoutDir().getAbsolutePath(), getBuildProblemType(getType(), "DupFailure"),
+                                                 myReportedDuplicates);
         }
 
         @NotNull
         @Override
         public TestReporter getTestReporter() {
-          return new TeamCityTestReporter(getInternalizingThreadLogger(), getBuildProblemType(getType(), "TestFailure"), getCheckoutDir().getAbsolutePath());
+          final TeamCityTestReporter reporter = new TeamCityTestReporter(getInternalizingThreadLogger(), getBuildProblemType(getType(), "TestFailure"), getCheckoutDir().getAbsolutePath());
+          final PassedTestStatistics statistics = myPassedTestStatistics;
+          if (statistics == null || !isReportFailuresOnly(myParameters)) return reporter;
+
+          final FailuresOnlyTestReporter failuresOnlyReporter = new FailuresOnlyTestReporter(reporter, statistics);
+          myFailuresOnlyReporters.add(failuresOnlyReporter);
+          return failuresOnlyReporter;
+        }
+
+        @Override
+        public void flush() {
+          for (FailuresOnlyTestReporter reporter : myFailuresOnlyReporters) {
+            reporter.flush();
+          }
+        }
+
+        @Override
+        public synchronized void dispose() {
+          if (myFlowLogger != null) {
+            myFlowLogger.disposeFlow();
+            myFlowLogger = null;
+          }
         }
 
         @NotNull
@@ -681,9 +826,13 @@ public class XmlReportPlugin extends AgentLifeCycleAdapter implements RulesProce
     private final long startTime;
     private volatile boolean finished;
     @Nullable
-    private volatile Thread monitorThread;
+    private volatile ReportsMonitor.Handle monitorHandle;
     @NotNull
     private final List<RulesContext> rulesContexts;
+    @NotNull
+    private final SharedRulesScanner sharedScanner = new SharedRulesScanner();
+    @NotNull
+    private final MonitorInterval monitorInterval = new MonitorInterval();
 
     private ProcessingContext(@NotNull List<RulesContext> rulesContexts) {
       this.rulesContexts = rulesContexts;
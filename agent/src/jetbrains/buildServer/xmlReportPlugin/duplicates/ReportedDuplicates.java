@@ -0,0 +1,108 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.duplicates;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Duplicates already passed to the agent during the build,
+ * several CPD reports of the build (or the same report rewritten) often contain the same duplicates.
+ *
+ * Thread-safe, the reports are parsed in parallel.
+ */
+public class ReportedDuplicates {
+  @NotNull
+  private final Set<Key> myReported = new HashSet<Key>();
+
+  /**
+   * @return true if the duplicate with the same hash, cost, lines and fragments wasn't reported before
+   */
+  public synchronized boolean markReported(@NotNull Key key) {
+    return myReported.add(key);
+  }
+
+  public synchronized int size() {
+    return myReported.size();
+  }
+
+  @NotNull
+  public static Key createKey(@NotNull DuplicationResult duplicate) {
+    return new Key(duplicate);
+  }
+
+  /**
+   * Identity of the duplicate independent of the order of its fragments
+   */
+  public static final class Key {
+    private final int myHash;
+    private final int myTokens;
+    private final int myLines;
+    @NotNull
+    private final String[] myPaths;
+    @NotNull
+    private final int[] myFragmentLines;
+    private final int myHashCode;
+
+    private Key(@NotNull DuplicationResult duplicate) {
+      myHash = duplicate.getHash();
+      myTokens = duplicate.getTokens();
+      myLines = duplicate.getLines();
+
+      final List<DuplicatingFragment> fragments = duplicate.getFragments();
+      myPaths = new String[fragments.size()];
+      myFragmentLines = new int[fragments.size()];
+      // insertion sort by path and line, there are usually two or three fragments
+      for (int i = 0; i < myPaths.length; ++i) {
+        final DuplicatingFragment fragment = fragments.get(i);
+        int j = i;
+        for (; j > 0 && compare(fragment.getPath(), fragment.getLine(), myPaths[j - 1], myFragmentLines[j - 1]) < 0; --j) {
+          myPaths[j] = myPaths[j - 1];
+          myFragmentLines[j] = myFragmentLines[j - 1];
+        }
+        myPaths[j] = fragment.getPath();
+        myFragmentLines[j] = fragment.getLine();
+      }
+
+      int hashCode = 31 * (31 * myHash + myTokens) + myLines;
+      hashCode = 31 * hashCode + Arrays.hashCode(myPaths);
+      myHashCode = 31 * hashCode + Arrays.hashCode(myFragmentLines);
+    }
+
+    private static int compare(@NotNull String path1, int line1, @NotNull String path2, int line2) {
+      final int byPath = path1.compareTo(path2);
+      return byPath != 0 ? byPath : Integer.compare(line1, line2);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Key)) return false;
+      final Key key = (Key)o;
+      return myHashCode == key.myHashCode && myHash == key.myHash && myTokens == key.myTokens && myLines == key.myLines &&
+             Arrays.equals(myFragmentLines, key.myFragmentLines) && Arrays.equals(myPaths, key.myPaths);
+    }
+
+    @Override
+    public int hashCode() {
+      return myHashCode;
+    }
+  }
+}
@@ -22,6 +22,7 @@ import jetbrains.buildServer.agent.BuildProgressLogger;
 import jetbrains.buildServer.agent.duplicates.DuplicatesReporter;
 import jetbrains.buildServer.duplicator.DuplicateInfo;
 import jetbrains.buildServer.xmlReportPlugin.BaseMessageLogger;
+import jetbrains.buildServer.xmlReportPlugin.utils.LoggingUtils;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -30,33 +31,77 @@ import org.jetbrains.annotations.NotNull;
  * Time: 16:12
  */
 public class TeamCityDuplicationReporter extends BaseMessageLogger implements DuplicationReporter {
+  private static final int INITIAL_CAPACITY = 1024;
+
   @NotNull
   private final DuplicatesReporter myDuplicatesReporter;
+  @NotNull
+  private final ReportedDuplicates myReportedDuplicates;
+  @NotNull
+  private final List<DuplicateInfo> myDuplicates = new ArrayList<DuplicateInfo>(INITIAL_CAPACITY);
+  @NotNull
+  private final List<ReportedDuplicates.Key> myKeys = new ArrayList<ReportedDuplicates.Key>(INITIAL_CAPACITY);
 
   public TeamCityDuplicationReporter(@NotNull DuplicatesReporter duplicatesReporter,
                                      @NotNull BuildProgressLogger logger,
                                      @NotNull String baseFolder,
                                      @NotNull String buildProblemType) {
+    this(duplicatesReporter, logger, baseFolder, buildProblemType, new ReportedDuplicates());
+  }
+
+  /**
+   * @param reportedDuplicates duplicates reported during the build, the duplicates of the report found there are not passed again
+   */
+  public TeamCityDuplicationReporter(@NotNull DuplicatesReporter duplicatesReporter,
+                                     @NotNull BuildProgressLogger logger,
+                                     @NotNull String baseFolder,
+                                     @NotNull String buildProblemType,
+                                     @NotNull ReportedDuplicates reportedDuplicates) {
     super(logger, buildProblemType, baseFolder);
     myDuplicatesReporter = duplicatesReporter;
+    myReportedDuplicates = reportedDuplicates;
   }
 
   public void startDuplicates() {
-    myDuplicatesReporter.startDuplicates();
+    myDuplicates.clear();
+    myKeys.clear();
   }
 
   public void reportDuplicate(@NotNull DuplicationResult duplicate) {
-    final List<DuplicateInfo.Fragment> fragmentsList = new ArrayList<DuplicateInfo.Fragment>();
+    final List<DuplicatingFragment> fragments = duplicate.getFragments();
+    final DuplicateInfo.Fragment[] fragmentsArray = new DuplicateInfo.Fragment[fragments.size()];
 
-    for (DuplicatingFragment fragment : duplicate.getFragments()) {
-      fragmentsList.add(new DuplicateInfo.Fragment(fragment.getHash(), fragment.getPath(), fragment.getLine(),
-        new DuplicateInfo.LineOffset(fragment.getLine(), fragment.getLine() + duplicate.getLines())));
+    for (int i = 0; i < fragmentsArray.length; ++i) {
+      final DuplicatingFragment fragment = fragments.get(i);
+      fragmentsArray[i] = new DuplicateInfo.Fragment(fragment.getHash(), fragment.getPath(), fragment.getLine(),
+        new DuplicateInfo.LineOffset(fragment.getLine(), fragment.getLine() + duplicate.getLines()));
     }
 
-    myDuplicatesReporter.addDuplicate(new DuplicateInfo(duplicate.getHash(), duplicate.getTokens(), fragmentsList.toArray(new DuplicateInfo.Fragment[0])));
+    myDuplicates.add(new DuplicateInfo(duplicate.getHash(), duplicate.getTokens(), fragmentsArray));
+    myKeys.add(ReportedDuplicates.createKey(duplicate));
   }
 
+  /**
+   * Passes the duplicates of the report which were not reported during the build before to the agent reporter at once,
+   * as the duplicates of the reports parsed in parallel must not get into the same session
+   */
   public void finishDuplicates() {
-    myDuplicatesReporter.finishDuplicates();
+    synchronized (myDuplicatesReporter) {
+      final List<DuplicateInfo> duplicates = new ArrayList<DuplicateInfo>(myDuplicates.size());
+      for (int i = 0; i < myDuplicates.size(); ++i) {
+        if (myReportedDuplicates.markReported(myKeys.get(i))) {
+          duplicates.add(myDuplicates.get(i));
+        }
+      }
+      if (duplicates.size() < myDuplicates.size()) {
+        LoggingUtils.verbose("Skipped " + (myDuplicates.size() - duplicates.size()) + " duplicates already reported during the build", myLogger);
+      }
+
+      myDuplicatesReporter.startDuplicates();
+      myDuplicatesReporter.addDuplicates(duplicates);
+      myDuplicatesReporter.finishDuplicates();
+    }
+    myDuplicates.clear();
+    myKeys.clear();
   }
 }
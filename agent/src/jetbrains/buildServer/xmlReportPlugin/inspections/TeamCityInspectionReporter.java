@@ -45,7 +45,9 @@ public class TeamCityInspectionReporter extends BaseMessageLogger implements Ins
   }
 
   public void markBuildAsInspectionsBuild() {
-    myInspectionReporter.markBuildAsInspectionsBuild();
+    synchronized (myInspectionReporter) {
+      myInspectionReporter.markBuildAsInspectionsBuild();
+    }
   }
 
   @Override
@@ -71,7 +73,10 @@ public class TeamCityInspectionReporter extends BaseMessageLogger implements Ins
 
     inspectionInstance.addAttribute(InspectionAttributesId.SEVERITY.toString(), Collections.singleton(level.toString()));
 
-    myInspectionReporter.reportInspection(inspectionInstance);
+    // reports of the same build are parsed in parallel
+    synchronized (myInspectionReporter) {
+      myInspectionReporter.reportInspection(inspectionInstance);
+    }
   }
 
   @Override
@@ -83,7 +88,9 @@ public class TeamCityInspectionReporter extends BaseMessageLogger implements Ins
     inspectionTypeInfo.setCategory(getValueOrUnknown(inspectionType.getCategory()));
     inspectionTypeInfo.setDescription(getValueOrUnknown(inspectionType.getDescription()));
 
-    myInspectionReporter.reportInspectionType(inspectionTypeInfo);
+    synchronized (myInspectionReporter) {
+      myInspectionReporter.reportInspectionType(inspectionTypeInfo);
+    }
   }
 
   @NotNull
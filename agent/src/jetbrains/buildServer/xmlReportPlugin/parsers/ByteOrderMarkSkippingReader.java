@@ -0,0 +1,75 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.parsers;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Drops the byte order mark at the beginning of the report.
+ *
+ * The decoders of UTF-16 drop it, but the UTF-8 one passes it on as U+FEFF, and the parser doesn't accept anything before the prolog.
+ */
+public class ByteOrderMarkSkippingReader extends FilterReader {
+  private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+  private boolean myStarted;
+
+  public ByteOrderMarkSkippingReader(@NotNull Reader in) {
+    super(in);
+  }
+
+  @Override
+  public int read() throws IOException {
+    final int c = in.read();
+    if (myStarted) return c;
+    myStarted = true;
+    return c == BYTE_ORDER_MARK ? in.read() : c;
+  }
+
+  @Override
+  public int read(@NotNull char[] cbuf, int off, int len) throws IOException {
+    if (myStarted || len == 0) return in.read(cbuf, off, len);
+    myStarted = true;
+
+    final int c = in.read();
+    if (c < 0) return -1;
+    if (c == BYTE_ORDER_MARK) return in.read(cbuf, off, len);
+
+    cbuf[off] = (char)c;
+    if (len == 1) return 1;
+    final int read = in.read(cbuf, off + 1, len - 1);
+    return read < 0 ? 1 : read + 1;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  @Override
+  public void mark(int readAheadLimit) throws IOException {
+    throw new IOException("mark() not supported");
+  }
+
+  @Override
+  public void reset() throws IOException {
+    throw new IOException("reset() not supported");
+  }
+}
@@ -0,0 +1,431 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.parsers;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Xml report stream which tracks the markup passing through it and remembers the positions right after
+ * the closed elements of the given kind, see {@link XmlCheckpoint}.
+ *
+ * The markup is tracked on the byte level, so the checkpoints are only recorded for ASCII-compatible encodings.
+ */
+public class CheckpointingInputStream extends FilterInputStream {
+  private static final String DEFAULT_CHARSET = "UTF-8";
+  private static final int HEAD_LENGTH = 1024;
+  private static final int TAIL_LENGTH = 32;
+  private static final int MAX_PROLOG_LENGTH = 64 * 1024;
+  private static final int MAX_PENDING = 4096;
+
+  private static final int TEXT = 0;
+  private static final int TAG_OPEN = 1;
+  private static final int START_TAG_NAME = 2;
+  private static final int START_TAG = 3;
+  private static final int ATTRIBUTE_VALUE = 4;
+  private static final int EMPTY_TAG_END = 5;
+  private static final int END_TAG = 6;
+  private static final int MARKUP = 7;
+  private static final int COMMENT = 8;
+  private static final int CDATA = 9;
+  private static final int DECLARATION = 10;
+  private static final int INSTRUCTION = 11;
+
+  @NotNull
+  private final String myElement;
+  @NotNull
+  private final String myParent;
+  @NotNull
+  private final String myCharset;
+  @NotNull
+  private final byte[] myPrefix;
+  private boolean myDisabled;
+
+  private long myOffset;
+  private int myIndex;
+  @Nullable
+  private byte[] myProlog;
+  @Nullable
+  private XmlCheckpoint.Element myOpen;
+  @Nullable
+  private XmlCheckpoint myConfirmed;
+  @NotNull
+  private final Deque<XmlCheckpoint> myPending = new ArrayDeque<XmlCheckpoint>();
+
+  private int myState = TEXT;
+  @NotNull
+  private final ByteArrayOutputStream myPrologBuffer = new ByteArrayOutputStream();
+  @NotNull
+  private final ByteArrayOutputStream myTag = new ByteArrayOutputStream();
+  @NotNull
+  private final StringBuilder myName = new StringBuilder();
+  private int myQuote;
+  private int myRepeats;
+  private int myDepth;
+  @NotNull
+  private final byte[] myTail = new byte[TAIL_LENGTH];
+  private long myTailLength;
+
+  private CheckpointingInputStream(@NotNull InputStream in,
+                                   @NotNull String element,
+                                   @NotNull String parent,
+                                   @NotNull String charset,
+                                   @Nullable XmlCheckpoint from) {
+    super(in);
+    myElement = element;
+    myParent = parent;
+    myCharset = charset;
+    if (from != null) {
+      myOffset = from.getOffset();
+      myIndex = from.getIndex();
+      myProlog = from.getProlog();
+      myOpen = from.getOpen();
+      myConfirmed = from;
+      myPrefix = from.getPrefix();
+      for (byte b : from.getTail()) {
+        addToTail(b);
+      }
+    } else {
+      myPrefix = new byte[0];
+    }
+  }
+
+  /**
+   * Opens the report at the checkpoint if the report was appended since it was recorded or at the beginning otherwise
+   *
+   * @param element local name of the elements to record checkpoints after
+   * @param parent local name of the parent of the elements to record checkpoints after
+   * @param from checkpoint recorded during the previous parsing of the report
+   */
+  @NotNull
+  public static CheckpointingInputStream open(@NotNull File file,
+                                              @NotNull String element,
+                                              @NotNull String parent,
+                                              @Nullable XmlCheckpoint from) throws IOException {
+    if (from != null && from.isValidFor(file)) {
+      final FileInputStream in = new FileInputStream(file);
+      try {
+        in.getChannel().position(from.getOffset());
+      } catch (IOException e) {
+        in.close();
+        throw e;
+      }
+      return new CheckpointingInputStream(new BufferedInputStream(in), element, parent, from.getCharset(), from);
+    }
+
+    final InputStream in = new BufferedInputStream(new FileInputStream(file));
+    final String charset;
+    try {
+      charset = detectCharset(in);
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+
+    final CheckpointingInputStream result = new CheckpointingInputStream(in, element, parent, charset, null);
+    result.myDisabled = !isAsciiCompatible(charset);
+    return result;
+  }
+
+  /**
+   * @return reader of the report content without the byte order mark, if the stream is resumed the start tags of the elements
+   * open at the checkpoint precede the content
+   */
+  @NotNull
+  public Reader createReader() throws UnsupportedEncodingException {
+    return new ByteOrderMarkSkippingReader(new InputStreamReader(new SequenceInputStream(new ByteArrayInputStream(myPrefix), this), myCharset));
+  }
+
+  /**
+   * Notifies that the parser has completely processed the given number of the tracked elements,
+   * the parser may read ahead, so the checkpoints are only taken after such confirmation
+   */
+  public void confirm(int index) {
+    while (!myPending.isEmpty() && myPending.peekFirst().getIndex() <= index) {
+      myConfirmed = myPending.pollFirst();
+    }
+  }
+
+  /**
+   * @return the latest confirmed checkpoint, initially the one the stream is opened at
+   */
+  @Nullable
+  public XmlCheckpoint getCheckpoint() {
+    return myConfirmed;
+  }
+
+  @Override
+  public int read() throws IOException {
+    final int b = super.read();
+    if (b >= 0) process(b);
+    return b;
+  }
+
+  @Override
+  public int read(@NotNull byte[] b, int off, int len) throws IOException {
+    final int read = super.read(b, off, len);
+    for (int i = 0; i < read; ++i) {
+      process(b[off + i] & 0xFF);
+    }
+    return read;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    // the markup must be tracked
+    long skipped = 0;
+    while (skipped < n && read() >= 0) ++skipped;
+    return skipped;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  private void process(int b) {
+    if (myDisabled) return;
+
+    if (myProlog == null) {
+      if (myPrologBuffer.size() == MAX_PROLOG_LENGTH) {
+        myDisabled = true;
+        return;
+      }
+      myPrologBuffer.write(b);
+    }
+
+    switch (myState) {
+      case TEXT:
+        if (b == '<') myState = TAG_OPEN;
+        break;
+      case TAG_OPEN:
+        myName.setLength(0);
+        myRepeats = 0;
+        if (b == '/') {
+          myState = END_TAG;
+        } else if (b == '!') {
+          myState = MARKUP;
+        } else if (b == '?') {
+          myState = INSTRUCTION;
+        } else {
+          myTag.reset();
+          myTag.write('<');
+          myTag.write(b);
+          myName.append((char) b);
+          myState = START_TAG_NAME;
+        }
+        break;
+      case START_TAG_NAME:
+        if (b == '/' || b == '>' || Character.isWhitespace(b)) {
+          myState = START_TAG;
+          processStartTag(b);
+        } else {
+          myTag.write(b);
+          myName.append((char) b);
+        }
+        break;
+      case START_TAG:
+        processStartTag(b);
+        break;
+      case ATTRIBUTE_VALUE:
+        myTag.write(b);
+        if (b == myQuote) myState = START_TAG;
+        break;
+      case EMPTY_TAG_END:
+        myTag.write(b);
+        if (b == '>') {
+          elementClosed(getLocalName(myName), myOpen);
+          myState = TEXT;
+        } else {
+          myState = START_TAG;
+        }
+        break;
+      case END_TAG:
+        if (b == '>') {
+          final XmlCheckpoint.Element closed = myOpen;
+          if (closed != null) {
+            myOpen = closed.getParent();
+            elementClosed(closed.getName(), myOpen);
+          }
+          myState = TEXT;
+        }
+        break;
+      case MARKUP:
+        myName.append((char) b);
+        if ("--".contentEquals(myName)) {
+          myState = COMMENT;
+        } else if ("[CDATA[".contentEquals(myName)) {
+          myState = CDATA;
+        } else if (!"--".startsWith(myName.toString()) && !"[CDATA[".startsWith(myName.toString())) {
+          myDepth = 0;
+          myState = DECLARATION;
+          processDeclaration(b);
+        }
+        break;
+      case COMMENT:
+        myState = processSectionEnd(b, '-', COMMENT);
+        break;
+      case CDATA:
+        myState = processSectionEnd(b, ']', CDATA);
+        break;
+      case DECLARATION:
+        processDeclaration(b);
+        break;
+      case INSTRUCTION:
+        myState = processSectionEnd(b, '?', INSTRUCTION);
+        break;
+    }
+
+    addToTail(b);
+    ++myOffset;
+  }
+
+  private void processStartTag(int b) {
+    myTag.write(b);
+    if (b == '"' || b == '\'') {
+      myQuote = b;
+      myState = ATTRIBUTE_VALUE;
+    } else if (b == '/') {
+      myState = EMPTY_TAG_END;
+    } else if (b == '>') {
+      if (myProlog == null) {
+        final byte[] buffer = myPrologBuffer.toByteArray();
+        final byte[] prolog = new byte[buffer.length - myTag.size()];
+        System.arraycopy(buffer, 0, prolog, 0, prolog.length);
+        myProlog = prolog;
+      }
+      myOpen = new XmlCheckpoint.Element(getLocalName(myName), myTag.toByteArray(), myOpen);
+      myState = TEXT;
+    }
+  }
+
+  private void processDeclaration(int b) {
+    if (b == '[') {
+      ++myDepth;
+    } else if (b == ']') {
+      --myDepth;
+    } else if (b == '>' && myDepth <= 0) {
+      myState = TEXT;
+    }
+  }
+
+  private int processSectionEnd(int b, int repeated, int state) {
+    if (b == '>' && myRepeats >= (repeated == '?' ? 1 : 2)) return TEXT;
+    myRepeats = b == repeated ? myRepeats + 1 : 0;
+    return state;
+  }
+
+  private void elementClosed(@NotNull String name, @Nullable XmlCheckpoint.Element parent) {
+    if (myProlog == null || parent == null || !myElement.equals(name) || !myParent.equals(parent.getName())) return;
+
+    ++myIndex;
+    if (myPending.size() == MAX_PENDING) myPending.pollFirst();
+    myPending.addLast(new XmlCheckpoint(myOffset + 1, myIndex, myProlog, parent, getTail(), myCharset));
+  }
+
+  private void addToTail(byte b) {
+    myTail[(int) (myTailLength++ % TAIL_LENGTH)] = b;
+  }
+
+  private void addToTail(int b) {
+    addToTail((byte) b);
+  }
+
+  @NotNull
+  private byte[] getTail() {
+    // the tail is taken when processing the closing '>' which is not added yet
+    final int length = (int) Math.min(myTailLength + 1, TAIL_LENGTH);
+    final byte[] tail = new byte[length];
+    for (int i = 0; i < length - 1; ++i) {
+      tail[i] = myTail[(int) ((myTailLength - length + 1 + i) % TAIL_LENGTH)];
+    }
+    tail[length - 1] = '>';
+    return tail;
+  }
+
+  @NotNull
+  private static String getLocalName(@NotNull CharSequence name) {
+    final String s = name.toString();
+    return s.substring(s.indexOf(':') + 1);
+  }
+
+  /**
+   * Detects the charset by the head of the stream and resets the stream back to its beginning
+   *
+   * @param in stream supporting mark
+   */
+  @NotNull
+  public static String detectCharset(@NotNull InputStream in) throws IOException {
+    in.mark(HEAD_LENGTH);
+    final byte[] head = new byte[HEAD_LENGTH];
+    int length = 0;
+    int read;
+    while (length < head.length && (read = in.read(head, length, head.length - length)) > 0) {
+      length += read;
+    }
+    in.reset();
+    return detectCharset(head, length);
+  }
+
+  /**
+   * @return charset of the report detected by the byte order mark or the xml declaration
+   */
+  @NotNull
+  public static String detectCharset(@NotNull byte[] head, int length) {
+    if (length >= 2) {
+      final int first = head[0] & 0xFF;
+      final int second = head[1] & 0xFF;
+      if (first == 0xFE && second == 0xFF || first == 0xFF && second == 0xFE) return "UTF-16";
+      if (first == 0 && second == '<') return "UTF-16BE";
+      if (first == '<' && second == 0) return "UTF-16LE";
+    }
+
+    final int start = length >= 3 && (head[0] & 0xFF) == 0xEF && (head[1] & 0xFF) == 0xBB && (head[2] & 0xFF) == 0xBF ? 3 : 0;
+    final String text = new String(head, start, length - start, StandardCharsets.ISO_8859_1);
+    if (!text.startsWith("<?xml")) return DEFAULT_CHARSET;
+
+    final int end = text.indexOf("?>");
+    final int encoding = text.indexOf("encoding");
+    if (end < 0 || encoding < 0 || encoding > end) return DEFAULT_CHARSET;
+
+    int i = encoding + "encoding".length();
+    while (i < end && (Character.isWhitespace(text.charAt(i)) || text.charAt(i) == '=')) ++i;
+    if (i == end) return DEFAULT_CHARSET;
+
+    final int valueEnd = text.indexOf(text.charAt(i), i + 1);
+    if (valueEnd < 0 || valueEnd > end) return DEFAULT_CHARSET;
+
+    final String charset = text.substring(i + 1, valueEnd);
+    try {
+      return Charset.isSupported(charset) ? charset : DEFAULT_CHARSET;
+    } catch (IllegalCharsetNameException e) {
+      return DEFAULT_CHARSET;
+    }
+  }
+
+  public static boolean isAsciiCompatible(@NotNull String charset) {
+    final String name = charset.toUpperCase(Locale.ENGLISH);
+    return !name.startsWith("UTF-16") && !name.startsWith("UTF-32");
+  }
+}
@@ -0,0 +1,392 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.parsers;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Passes the xml report through replacing the text of the elements with the given names,
+ * so the text which can be huge is never collected into strings by the parser.
+ *
+ * The text is decoded the way the parser would do it: the CDATA sections and the text are joined, the entities are resolved,
+ * the line ends are normalized, the comments and the markup of the nested elements are skipped.
+ */
+public abstract class ElementTextFilteringReader extends Reader {
+  private static final int BUFFER_SIZE = 8192;
+
+  @NotNull
+  private final Reader myIn;
+  @NotNull
+  private final Set<String> myElements;
+  @NotNull
+  private final char[] myBuffer = new char[BUFFER_SIZE];
+  private int myPos;
+  private int myLimit;
+
+  @NotNull
+  private final StringBuilder myOut = new StringBuilder();
+  private int myOutPos;
+
+  private boolean myAfterCR;
+
+  // the raw element content is kept while it's shorter than the limit
+  @NotNull
+  private final StringBuilder myRaw = new StringBuilder();
+  private int myRawLimit = -1;
+
+  protected ElementTextFilteringReader(@NotNull Reader in, @NotNull String... elements) {
+    myIn = in;
+    myElements = new HashSet<String>(Arrays.asList(elements));
+  }
+
+  /**
+   * Called when the text of the element starts, the text follows as {@link #addText(char)} calls,
+   * for an empty element the text is finished right away
+   */
+  protected abstract void startText(@NotNull String element) throws IOException;
+
+  protected abstract void addText(char c) throws IOException;
+
+  /**
+   * Called when the element ends
+   *
+   * @param out to append the escaped replacement of the element text to
+   * @param raw the element content exactly as it is in the report or null if it's longer than the limit set by {@link #setRawLimit(int)}
+   */
+  protected abstract void finishText(@NotNull StringBuilder out, @Nullable CharSequence raw) throws IOException;
+
+  /**
+   * Makes the current element content available as is to {@link #finishText(StringBuilder, CharSequence)} while it's not longer than the given limit
+   */
+  protected void setRawLimit(int limit) {
+    myRawLimit = limit;
+  }
+
+  @Override
+  public int read(@NotNull char[] cbuf, int off, int len) throws IOException {
+    if (len == 0) return 0;
+    while (myOutPos == myOut.length()) {
+      myOut.setLength(0);
+      myOutPos = 0;
+      if (!fill()) return -1;
+    }
+    final int count = Math.min(len, myOut.length() - myOutPos);
+    myOut.getChars(myOutPos, myOutPos + count, cbuf, off);
+    myOutPos += count;
+    return count;
+  }
+
+  @Override
+  public void close() throws IOException {
+    myIn.close();
+  }
+
+  /**
+   * Passes the next text or markup to the output
+   *
+   * @return false at the end of the input
+   */
+  private boolean fill() throws IOException {
+    final int c = next();
+    if (c < 0) return false;
+    myOut.append((char)c);
+    if (c != '<') {
+      for (int i = 0; i < BUFFER_SIZE && ensure(1) && myBuffer[myPos] != '<'; ++i) {
+        myOut.append(myBuffer[myPos++]);
+      }
+      return true;
+    }
+
+    if (lookingAt("!--")) {
+      copyUntil("-->");
+    } else if (lookingAt("![CDATA[")) {
+      copyUntil("]]>");
+    } else if (lookingAt("?")) {
+      copyUntil("?>");
+    } else if (lookingAt("!")) {
+      copyDeclaration();
+    } else if (lookingAt("/")) {
+      copyTag();
+    } else {
+      final int nameStart = myOut.length();
+      final boolean empty = copyTag();
+      final String element = getName(nameStart);
+      if (element != null) {
+        if (empty) {
+          startText(element);
+          finishText(myOut, "");
+        } else {
+          filterContent(element);
+        }
+      }
+    }
+    return true;
+  }
+
+  // passes the text of the element to the subclass instead of the output and copies the end tag
+  private void filterContent(@NotNull String element) throws IOException {
+    myRawLimit = -1;
+    myRaw.setLength(0);
+    startText(element);
+
+    int depth = 0;
+    int c;
+    while ((c = nextContent()) >= 0) {
+      if (c == '&') {
+        myAfterCR = false;
+        addReference();
+      } else if (c != '<') {
+        addNormalized((char)c);
+      } else {
+        myAfterCR = false;
+        if (lookingAt("![CDATA[")) {
+          skip("![CDATA[".length());
+          while (ensure(1) && (myBuffer[myPos] != ']' || !lookingAt("]]>"))) {
+            addNormalized((char)nextContent());
+          }
+          skip("]]>".length());
+          myAfterCR = false;
+        } else if (lookingAt("!--")) {
+          skipUntil("-->");
+        } else if (lookingAt("?")) {
+          skipUntil("?>");
+        } else if (lookingAt("/")) {
+          if (depth == 0) {
+            finishText(myOut, getRaw(1));
+            myOut.append('<');
+            copyTag();
+            return;
+          }
+          --depth;
+          skipUntil(">");
+        } else {
+          // the markup of the nested elements is dropped
+          final int start = myOut.length();
+          if (!copyTag(true)) ++depth;
+          myOut.setLength(start);
+        }
+      }
+    }
+    finishText(myOut, getRaw(0));
+  }
+
+  @Nullable
+  private CharSequence getRaw(int endTagStart) {
+    if (myRawLimit < 0) return null;
+    myRaw.setLength(myRaw.length() - endTagStart);
+    return myRaw;
+  }
+
+  // the parser reports "\r\n" and "\r" as "\n"
+  private void addNormalized(char c) throws IOException {
+    if (c == '\r') {
+      addText('\n');
+      myAfterCR = true;
+      return;
+    }
+    if (c != '\n' || !myAfterCR) {
+      addText(c);
+    }
+    myAfterCR = false;
+  }
+
+  private void addReference() throws IOException {
+    final StringBuilder name = new StringBuilder();
+    int c;
+    while (name.length() < 10 && (c = nextContent()) >= 0 && c != ';') {
+      name.append((char)c);
+    }
+    final String entity = name.toString();
+    if ("lt".equals(entity)) {
+      addText('<');
+    } else if ("gt".equals(entity)) {
+      addText('>');
+    } else if ("amp".equals(entity)) {
+      addText('&');
+    } else if ("quot".equals(entity)) {
+      addText('"');
+    } else if ("apos".equals(entity)) {
+      addText('\'');
+    } else if (entity.startsWith("#")) {
+      try {
+        final int codePoint = entity.startsWith("#x") ? Integer.parseInt(entity.substring(2), 16) : Integer.parseInt(entity.substring(1));
+        for (char ch : Character.toChars(codePoint)) {
+          addText(ch);
+        }
+      } catch (IllegalArgumentException e) {
+        addAll("&" + entity + ";");
+      }
+    } else {
+      addAll("&" + entity + ";");
+    }
+  }
+
+  private void addAll(@NotNull String s) throws IOException {
+    for (int i = 0; i < s.length(); ++i) {
+      addText(s.charAt(i));
+    }
+  }
+
+  /**
+   * Appends the text to the output escaping the characters the parser would treat as markup or normalize
+   */
+  protected static void appendEscaped(@NotNull StringBuilder out, char c) {
+    switch (c) {
+      case '&':
+        out.append("&amp;");
+        break;
+      case '<':
+        out.append("&lt;");
+        break;
+      case '>':
+        out.append("&gt;");
+        break;
+      case '\r':
+        out.append("&#13;");
+        break;
+      default:
+        out.append(c);
+    }
+  }
+
+  private boolean copyTag() throws IOException {
+    return copyTag(false);
+  }
+
+  /**
+   * Copies the rest of the tag skipping '>' inside the attribute values
+   *
+   * @return true for the empty element tag
+   */
+  private boolean copyTag(boolean content) throws IOException {
+    char quote = 0;
+    char prev = 0;
+    int c;
+    while ((c = content ? nextContent() : next()) >= 0) {
+      myOut.append((char)c);
+      if (quote != 0) {
+        if (c == quote) quote = 0;
+      } else if (c == '"' || c == '\'') {
+        quote = (char)c;
+      } else if (c == '>') {
+        return prev == '/';
+      }
+      prev = (char)c;
+    }
+    return false;
+  }
+
+  // DOCTYPE may have an internal subset in brackets
+  private void copyDeclaration() throws IOException {
+    int depth = 0;
+    int c;
+    while ((c = next()) >= 0) {
+      myOut.append((char)c);
+      if (c == '[') {
+        ++depth;
+      } else if (c == ']') {
+        --depth;
+      } else if (c == '>' && depth <= 0) {
+        return;
+      }
+    }
+  }
+
+  private void copyUntil(@NotNull String end) throws IOException {
+    while (ensure(1) && !lookingAt(end)) {
+      myOut.append(myBuffer[myPos++]);
+    }
+    for (int i = 0; i < end.length() && ensure(1); ++i) {
+      myOut.append(myBuffer[myPos++]);
+    }
+  }
+
+  private void skipUntil(@NotNull String end) throws IOException {
+    while (ensure(1) && !lookingAt(end)) {
+      nextContent();
+    }
+    skip(end.length());
+  }
+
+  private void skip(int count) throws IOException {
+    for (int i = 0; i < count && nextContent() >= 0; ++i) {
+    }
+  }
+
+  // name of the filtered element whose start tag begins after '<' at the given output position
+  @Nullable
+  private String getName(int start) {
+    int end = start;
+    while (end < myOut.length()) {
+      final char c = myOut.charAt(end);
+      if (c == '>' || c == '/' || c <= ' ') break;
+      ++end;
+    }
+    if (end == myOut.length()) return null;
+    for (String element : myElements) {
+      if (element.length() == end - start && element.contentEquals(myOut.subSequence(start, end))) return element;
+    }
+    return null;
+  }
+
+  private boolean lookingAt(@NotNull String s) throws IOException {
+    if (!ensure(s.length())) return false;
+    for (int i = 0; i < s.length(); ++i) {
+      if (myBuffer[myPos + i] != s.charAt(i)) return false;
+    }
+    return true;
+  }
+
+  private int next() throws IOException {
+    return ensure(1) ? myBuffer[myPos++] : -1;
+  }
+
+  // next character of the filtered element content
+  private int nextContent() throws IOException {
+    final int c = next();
+    if (c >= 0 && myRawLimit >= 0) {
+      if (myRaw.length() <= myRawLimit) {
+        myRaw.append((char)c);
+      } else {
+        myRawLimit = -1;
+      }
+    }
+    return c;
+  }
+
+  // at least the given number of characters is available in the buffer
+  private boolean ensure(int count) throws IOException {
+    if (myLimit - myPos >= count) return true;
+    if (myPos > 0) {
+      System.arraycopy(myBuffer, myPos, myBuffer, 0, myLimit - myPos);
+      myLimit -= myPos;
+      myPos = 0;
+    }
+    while (myLimit < count) {
+      final int read = myIn.read(myBuffer, myLimit, myBuffer.length - myLimit);
+      if (read < 0) return false;
+      myLimit += read;
+    }
+    return true;
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.parsers;
+
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Builds the qualified suite and test names of a report in one reused buffer,
+ * only the resulting name is allocated for each test and not the intermediate strings.
+ *
+ * Not thread-safe, one instance per parsing.
+ */
+public final class TestNameBuilder {
+  // the buffer isn't kept after a very long name, e.g. one with large parameter values
+  private static final int MAX_KEPT_CAPACITY = 8 * 1024;
+
+  @NotNull
+  private StringBuilder myBuilder = new StringBuilder(128);
+
+  /**
+   * @return prefix + "." + name, or just name if the prefix is null or the name already starts with it
+   */
+  @NotNull
+  public String getName(@Nullable String prefix, @Nullable String name) {
+    if (!isPrefixNeeded(prefix, name)) return String.valueOf(name);
+
+    myBuilder.setLength(0);
+    myBuilder.append(prefix).append('.').append(name);
+    return build();
+  }
+
+  /**
+   * @return the same as {@link #getName(String, String)} followed by the comma separated parameters in parentheses if there are any
+   */
+  @NotNull
+  public String getName(@Nullable String prefix, @Nullable String name, @NotNull List<String> params) {
+    if (params.isEmpty()) return getName(prefix, name);
+
+    myBuilder.setLength(0);
+    if (isPrefixNeeded(prefix, name)) {
+      myBuilder.append(prefix).append('.');
+    }
+    myBuilder.append(name).append('(');
+    for (int i = 0; i < params.size(); ++i) {
+      if (i > 0) myBuilder.append(", ");
+      myBuilder.append(params.get(i));
+    }
+    myBuilder.append(')');
+    return build();
+  }
+
+  // the name already starting with the prefix doesn't get it again
+  private static boolean isPrefixNeeded(@Nullable String prefix, @Nullable String name) {
+    return prefix != null && (name == null || !name.startsWith(prefix));
+  }
+
+  @NotNull
+  private String build() {
+    final String result = myBuilder.toString();
+    if (myBuilder.capacity() > MAX_KEPT_CAPACITY) {
+      myBuilder = new StringBuilder(128);
+    }
+    return result;
+  }
+}
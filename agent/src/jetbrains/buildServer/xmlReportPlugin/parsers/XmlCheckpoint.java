@@ -0,0 +1,163 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.parsers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Position in the xml report right after some fully closed element together with the start tags
+ * of the elements still open at this position, so that parsing of the growing report can be resumed from it
+ */
+public final class XmlCheckpoint {
+  private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+  private final long myOffset;
+  private final int myIndex;
+  @NotNull
+  private final byte[] myProlog;
+  @Nullable
+  private final Element myOpen;
+  @NotNull
+  private final byte[] myTail;
+  @NotNull
+  private final String myCharset;
+
+  XmlCheckpoint(long offset, int index, @NotNull byte[] prolog, @Nullable Element open, @NotNull byte[] tail, @NotNull String charset) {
+    myOffset = offset;
+    myIndex = index;
+    myProlog = prolog;
+    myOpen = open;
+    myTail = tail;
+    myCharset = charset;
+  }
+
+  /**
+   * @return offset in bytes right after the closed element
+   */
+  public long getOffset() {
+    return myOffset;
+  }
+
+  /**
+   * @return number of the elements of the tracked kind closed before the offset
+   */
+  public int getIndex() {
+    return myIndex;
+  }
+
+  @NotNull
+  String getCharset() {
+    return myCharset;
+  }
+
+  @Nullable
+  Element getOpen() {
+    return myOpen;
+  }
+
+  @NotNull
+  byte[] getProlog() {
+    return myProlog;
+  }
+
+  @NotNull
+  byte[] getTail() {
+    return myTail;
+  }
+
+  /**
+   * @return the report prolog followed by the start tags of the elements open at the offset,
+   * the content starting from the offset appended to it forms a well-formed beginning of xml document
+   */
+  @NotNull
+  byte[] getPrefix() {
+    final ByteArrayOutputStream prefix = new ByteArrayOutputStream();
+    final int bom = startsWith(myProlog, UTF8_BOM) ? UTF8_BOM.length : 0;
+    prefix.write(myProlog, bom, myProlog.length - bom);
+
+    final Deque<Element> open = new ArrayDeque<Element>();
+    for (Element e = myOpen; e != null; e = e.myParent) {
+      open.push(e);
+    }
+    for (Element e : open) {
+      prefix.write(e.myStartTag, 0, e.myStartTag.length);
+    }
+    return prefix.toByteArray();
+  }
+
+  /**
+   * Checks that the report still starts with the same content, so that it was appended rather than rewritten
+   */
+  boolean isValidFor(@NotNull File file) throws IOException {
+    if (file.length() < myOffset) return false;
+
+    final RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      final byte[] prolog = new byte[myProlog.length];
+      raf.readFully(prolog);
+      if (!Arrays.equals(prolog, myProlog)) return false;
+
+      final byte[] tail = new byte[myTail.length];
+      raf.seek(myOffset - myTail.length);
+      raf.readFully(tail);
+      return Arrays.equals(tail, myTail);
+    } finally {
+      raf.close();
+    }
+  }
+
+  private static boolean startsWith(@NotNull byte[] bytes, @NotNull byte[] prefix) {
+    if (bytes.length < prefix.length) return false;
+    for (int i = 0; i < prefix.length; ++i) {
+      if (bytes[i] != prefix[i]) return false;
+    }
+    return true;
+  }
+
+  static final class Element {
+    @NotNull
+    private final String myName;
+    @NotNull
+    private final byte[] myStartTag;
+    @Nullable
+    private final Element myParent;
+
+    Element(@NotNull String name, @NotNull byte[] startTag, @Nullable Element parent) {
+      myName = name;
+      myStartTag = startTag;
+      myParent = parent;
+    }
+
+    @NotNull
+    String getName() {
+      return myName;
+    }
+
+    @Nullable
+    Element getParent() {
+      return myParent;
+    }
+  }
+}
@@ -16,10 +16,14 @@
 
 package jetbrains.buildServer.xmlReportPlugin.parsers.antJUnit;
 
+import java.io.File;
+import java.util.Map;
+import jetbrains.buildServer.util.StringUtil;
 import jetbrains.buildServer.xmlReportPlugin.*;
 import jetbrains.buildServer.xmlReportPlugin.tests.SecondDurationParser;
 import jetbrains.buildServer.xmlReportPlugin.tests.TestParsingResult;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * User: vbedrosova
@@ -41,8 +45,21 @@ public class AntJUnitFactory implements ParserFactory {
 
   @NotNull
   public Parser createParser(@NotNull ParseParameters parameters) {
+    final Map<String, String> params = parameters.getParameters();
     return new AntJUnitReportParser(parameters.getTestReporter(), new SecondDurationParser(),
-                                    XmlReportPluginUtil.isLogInternalSystemError(parameters.getParameters()));
+                                    XmlReportPluginUtil.isLogInternalSystemError(params),
+                                    XmlReportPluginUtil.getMaxOutputLength(params),
+                                    XmlReportPluginUtil.getMaxReportOutputLength(params),
+                                    getOutputSpillDir(parameters));
+  }
+
+  // the output is saved only if the directory is configured
+  @Nullable
+  private static File getOutputSpillDir(@NotNull ParseParameters parameters) {
+    final String path = XmlReportPluginUtil.getOutputSpillDir(parameters.getParameters());
+    if (StringUtil.isEmptyOrSpaces(path)) return null;
+    final File dir = new File(path.trim());
+    return dir.isAbsolute() ? dir : new File(parameters.getCheckoutDir(), path.trim());
   }
 
   @NotNull
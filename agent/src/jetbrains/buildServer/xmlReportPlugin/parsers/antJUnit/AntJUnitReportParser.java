@@ -18,12 +18,16 @@ package jetbrains.buildServer.xmlReportPlugin.parsers.antJUnit;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayDeque;
 import java.util.Deque;
+import jetbrains.buildServer.util.FileUtil;
 import jetbrains.buildServer.xmlReportPlugin.Parser;
 import jetbrains.buildServer.xmlReportPlugin.ParsingException;
 import jetbrains.buildServer.xmlReportPlugin.ParsingResult;
+import jetbrains.buildServer.xmlReportPlugin.parsers.CheckpointingInputStream;
 import jetbrains.buildServer.xmlReportPlugin.parsers.TestMessages;
+import jetbrains.buildServer.xmlReportPlugin.parsers.XmlCheckpoint;
 import jetbrains.buildServer.xmlReportPlugin.tests.DurationParser;
 import jetbrains.buildServer.xmlReportPlugin.tests.TestParsingResult;
 import jetbrains.buildServer.xmlReportPlugin.tests.TestReporter;
@@ -45,24 +49,55 @@ class AntJUnitReportParser implements Parser {
 
   @Nullable
   private ParsingException myParsingException;
+  @Nullable
+  private CheckpointingInputStream myInput;
 
   @NotNull
   private final Deque<String> mySuites = new ArrayDeque<String>();
 
   private final boolean myLogInternalSystemError;
 
+  private final int myMaxOutputLength;
+  private final long myMaxReportOutputLength;
+  @Nullable
+  private final File myOutputSpillDir;
+
   public AntJUnitReportParser(@NotNull TestReporter testReporter, @NotNull DurationParser durationParser, final boolean logInternalSystemError) {
+    this(testReporter, durationParser, logInternalSystemError, Integer.MAX_VALUE, Long.MAX_VALUE, null);
+  }
+
+  /**
+   * @param maxOutputLength the longest system-out or system-err text to log, only the head and the tail of a longer one are kept
+   * @param maxReportOutputLength the longest system-out and system-err text of the whole report to log
+   * @param outputSpillDir directory to save the whole text which didn't fit the limits to or null
+   */
+  public AntJUnitReportParser(@NotNull TestReporter testReporter,
+                              @NotNull DurationParser durationParser,
+                              final boolean logInternalSystemError,
+                              final int maxOutputLength,
+                              final long maxReportOutputLength,
+                              @Nullable final File outputSpillDir) {
     myTestReporter = testReporter;
     myDurationParser = durationParser;
     myLogInternalSystemError = logInternalSystemError;
+    myMaxOutputLength = maxOutputLength;
+    myMaxReportOutputLength = maxReportOutputLength;
+    myOutputSpillDir = outputSpillDir;
   }
 
   @Override
   public boolean parse(@NotNull final File file, @Nullable final ParsingResult prevResult) throws ParsingException {
+    XmlCheckpoint checkpoint = null;
     if (prevResult != null) {
       myTestsToSkip = ((TestParsingResult) prevResult).getTests();
+      checkpoint = ((TestParsingResult) prevResult).getCheckpoint();
     }
     try {
+      myInput = CheckpointingInputStream.open(file, "testcase", "testsuite", checkpoint);
+      final XmlCheckpoint start = myInput.getCheckpoint();
+      if (start != null) {
+        myLoggedTests = start.getIndex();
+      }
       new AntJUnitXmlReportParser(new AntJUnitXmlReportParser.Callback() {
 
         @Override
@@ -169,6 +204,7 @@ class AntJUnitReportParser implements Parser {
             myTestReporter.closeTest(testData.getDuration());
           } finally {
             ++myLoggedTests;
+            if (myInput != null) myInput.confirm(myLoggedTests);
           }
         }
 
@@ -176,7 +212,7 @@ class AntJUnitReportParser implements Parser {
         public void unexpectedFormat(@NotNull final String msg) {
           myTestReporter.error(TestMessages.getFileExpectedFormatMessage(file, msg, "Ant JUnit Task"));
         }
-      }, myDurationParser).parse(file);
+      }, myDurationParser).parse(createReader(myInput));
       return true;
     } catch (IOException e) {
       myParsingException = new ParsingException(e);
@@ -187,14 +223,24 @@ class AntJUnitReportParser implements Parser {
       }
 
       LOG.debug(TestMessages.getCouldNotCompletelyParseMessage(file, e, myLoggedTests));
+    } finally {
+      FileUtil.close(myInput);
     }
 
     return false;
   }
 
+  @NotNull
+  private Reader createReader(@NotNull CheckpointingInputStream input) throws IOException {
+    final Reader reader = input.createReader();
+    if (myMaxOutputLength == Integer.MAX_VALUE && myMaxReportOutputLength == Long.MAX_VALUE) return reader;
+    return new OutputLimitingReader(reader, myMaxOutputLength, myMaxReportOutputLength, myOutputSpillDir);
+  }
+
   @Override
   public ParsingResult getParsingResult() {
-    return new TestParsingResult(myLoggedSuites, (myLoggedTests > myTestsToSkip) ? myLoggedTests : myTestsToSkip, myParsingException);
+    return new TestParsingResult(myLoggedSuites, (myLoggedTests > myTestsToSkip) ? myLoggedTests : myTestsToSkip, myParsingException,
+                                 myInput == null ? null : myInput.getCheckpoint());
   }
 
 
@@ -19,6 +19,7 @@ package jetbrains.buildServer.xmlReportPlugin.parsers.antJUnit;
 import java.util.*;
 import jetbrains.buildServer.util.StringUtil;
 import jetbrains.buildServer.xmlReportPlugin.parsers.BaseXmlXppAbstractParser;
+import jetbrains.buildServer.xmlReportPlugin.parsers.TestNameBuilder;
 import jetbrains.buildServer.xmlReportPlugin.tests.DurationParser;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -33,6 +34,8 @@ class AntJUnitXmlReportParser extends BaseXmlXppAbstractParser {
   private final Callback myCallback;
   @NotNull
   private final DurationParser myDurationParser;
+  @NotNull
+  private final TestNameBuilder myNameBuilder = new TestNameBuilder();
 
   public AntJUnitXmlReportParser(@NotNull Callback callback, @NotNull DurationParser durationParser) {
     myCallback = callback;
@@ -64,7 +67,7 @@ class AntJUnitXmlReportParser extends BaseXmlXppAbstractParser {
           final String name = reader.getAttribute("name");
           final String pack = reader.getAttribute("package");
 
-          final String suiteName = (pack == null || name != null && name.startsWith(pack) ? "" : pack + ".") + name;
+          final String suiteName = myNameBuilder.getName(pack, name);
           myCallback.suiteFound(suiteName);
 
           return reader.visitChildren(
@@ -114,7 +117,7 @@ class AntJUnitXmlReportParser extends BaseXmlXppAbstractParser {
 
                 final TestData testData = new TestData();
 
-                testData.setName((className == null || name != null && name.startsWith(className) ? "" : className + ".") + name);
+                testData.setName(myNameBuilder.getName(className, name));
                 testData.setDuration(myDurationParser.parseTestDuration(reader.getAttribute("time")));
                 testData.setExecuted(isExecuted(reader));
 
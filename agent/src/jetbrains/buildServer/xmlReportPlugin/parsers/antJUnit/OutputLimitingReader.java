@@ -0,0 +1,215 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.parsers.antJUnit;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import jetbrains.buildServer.util.FileUtil;
+import jetbrains.buildServer.xmlReportPlugin.parsers.ElementTextFilteringReader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Passes the report through limiting the text of the system-out and system-err elements,
+ * so a test printing hundreds of megabytes doesn't need that much memory to be reported.
+ *
+ * Of the longer text only the head and the tail are kept, the whole text is saved to a file in the spill directory if it's given.
+ * The length of the text kept for the whole report is limited too, once it's reached only the head and the tail of the limit left are kept.
+ * The lengths are in characters.
+ */
+class OutputLimitingReader extends ElementTextFilteringReader {
+  private static final org.apache.log4j.Logger LOG = org.apache.log4j.Logger.getLogger(OutputLimitingReader.class);
+
+  private final int myMaxLength;
+  private long myReportLengthLeft;
+  @Nullable
+  private final File mySpillDir;
+
+  @NotNull
+  private String myElement = "";
+  private int myLimit;
+  private long myLength;
+  @NotNull
+  private final StringBuilder myHead = new StringBuilder();
+  private int myHeadSize;
+  // ring buffer of the last characters
+  @NotNull
+  private char[] myTail = new char[0];
+  private int myTailSize;
+  private int myTailPos;
+  private boolean myTailWrapped;
+
+  @Nullable
+  private File mySpillFile;
+  @Nullable
+  private Writer mySpill;
+  @NotNull
+  private final char[] mySpillBuffer = new char[8192];
+  private int mySpillLength;
+
+  /**
+   * @param maxLength the longest text of one element to keep
+   * @param maxReportLength the longest text of all the elements of the report to keep
+   * @param spillDir directory to save the whole text which is not kept to or null
+   */
+  public OutputLimitingReader(@NotNull Reader in, int maxLength, long maxReportLength, @Nullable File spillDir) {
+    super(in, "system-out", "system-err");
+    myMaxLength = maxLength;
+    myReportLengthLeft = maxReportLength;
+    mySpillDir = spillDir;
+  }
+
+  @Override
+  protected void startText(@NotNull String element) {
+    myElement = element;
+    myLimit = (int)Math.min(myMaxLength, myReportLengthLeft);
+    myLength = 0;
+    myHead.setLength(0);
+    myHeadSize = myLimit / 2;
+    myTailSize = myLimit - myHeadSize;
+    if (myTail.length < myTailSize) myTail = new char[myTailSize];
+    myTailPos = 0;
+    myTailWrapped = false;
+    setRawLimit(myLimit);
+  }
+
+  @Override
+  protected void addText(char c) {
+    ++myLength;
+    if (myHead.length() < myHeadSize) {
+      myHead.append(c);
+      return;
+    }
+
+    if (myLength > myLimit) {
+      if (myLength == myLimit + 1L) startSpill();
+      if (mySpill != null) spill(c);
+    }
+
+    if (myTailSize == 0) return;
+    myTail[myTailPos++] = c;
+    if (myTailPos == myTailSize) {
+      myTailPos = 0;
+      myTailWrapped = true;
+    }
+  }
+
+  @Override
+  protected void finishText(@NotNull StringBuilder out, @Nullable CharSequence raw) {
+    if (myLength <= myLimit) {
+      myReportLengthLeft -= myLength;
+      if (raw != null) {
+        out.append(raw);
+        return;
+      }
+      appendEscaped(out, myHead, myHead.length());
+      appendTail(out, 0);
+      return;
+    }
+
+    finishSpill();
+
+    int headLength = myHead.length();
+    if (headLength > 0 && Character.isHighSurrogate(myHead.charAt(headLength - 1))) --headLength;
+    final int tailStart = myTailSize > 0 && Character.isLowSurrogate(myTail[myTailPos]) ? 1 : 0;
+
+    myReportLengthLeft -= headLength + myTailSize - tailStart;
+    final long skipped = myLength - headLength - myTailSize + tailStart;
+
+    appendEscaped(out, myHead, headLength);
+    final StringBuilder message = new StringBuilder("\n\n... ").append(skipped).append(" characters of ").append(myElement).append(" skipped");
+    if (mySpillFile != null) message.append(", the whole text is saved to ").append(mySpillFile.getAbsolutePath());
+    message.append(" ...\n\n");
+    appendEscaped(out, message, message.length());
+    appendTail(out, tailStart);
+  }
+
+  private void appendTail(@NotNull StringBuilder out, int start) {
+    final int first = myTailWrapped ? myTailPos : 0;
+    final int count = myTailWrapped ? myTailSize : myTailPos;
+    for (int i = start; i < count; ++i) {
+      final int index = first + i;
+      appendEscaped(out, myTail[index < myTailSize ? index : index - myTailSize]);
+    }
+  }
+
+  private static void appendEscaped(@NotNull StringBuilder out, @NotNull CharSequence text, int length) {
+    for (int i = 0; i < length; ++i) {
+      appendEscaped(out, text.charAt(i));
+    }
+  }
+
+  // the text read so far is the head and the tail which has just been filled
+  private void startSpill() {
+    mySpillFile = null;
+    mySpill = null;
+    mySpillLength = 0;
+    if (mySpillDir == null) return;
+    try {
+      if (!mySpillDir.isDirectory() && !mySpillDir.mkdirs()) throw new IOException("Failed to create directory " + mySpillDir);
+      mySpillFile = File.createTempFile(myElement + "-", ".txt", mySpillDir);
+      mySpill = new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(mySpillFile)), StandardCharsets.UTF_8);
+      mySpill.append(myHead).write(myTail, 0, myTailWrapped ? myTailSize : myTailPos);
+    } catch (IOException e) {
+      LOG.warn("Failed to save " + myElement + " text to " + mySpillDir, e);
+      discardSpill();
+    }
+  }
+
+  private void spill(char c) {
+    assert mySpill != null;
+    mySpillBuffer[mySpillLength++] = c;
+    if (mySpillLength == mySpillBuffer.length) {
+      try {
+        mySpill.write(mySpillBuffer, 0, mySpillLength);
+        mySpillLength = 0;
+      } catch (IOException e) {
+        LOG.warn("Failed to save " + myElement + " text to " + mySpillFile, e);
+        discardSpill();
+      }
+    }
+  }
+
+  private void finishSpill() {
+    if (mySpill == null) return;
+    try {
+      mySpill.write(mySpillBuffer, 0, mySpillLength);
+      mySpill.close();
+      mySpill = null;
+    } catch (IOException e) {
+      LOG.warn("Failed to save " + myElement + " text to " + mySpillFile, e);
+      discardSpill();
+    }
+  }
+
+  private void discardSpill() {
+    closeSpill();
+    if (mySpillFile != null) FileUtil.delete(mySpillFile);
+    mySpillFile = null;
+  }
+
+  private void closeSpill() {
+    FileUtil.close(mySpill);
+    mySpill = null;
+  }
+
+  @Override
+  public void close() throws IOException {
+    closeSpill();
+    super.close();
+  }
+}
@@ -48,7 +48,7 @@ class CheckstyleReportParser implements Parser {
 
   @Override
   public boolean parse(@NotNull final File file, @Nullable final ParsingResult prevResult) throws ParsingException {
-    if (!ParserUtils.isReportComplete(file, "checkstyle")) {
+    if (!ParserUtils.isReportClosed(file, "checkstyle")) {
       return false;
     }
 
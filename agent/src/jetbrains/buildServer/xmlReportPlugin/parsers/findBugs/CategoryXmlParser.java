@@ -18,8 +18,6 @@ package jetbrains.buildServer.xmlReportPlugin.parsers.findBugs;
 
 import java.util.Arrays;
 import java.util.List;
-import jetbrains.buildServer.util.XmlXppAbstractParser;
-import jetbrains.buildServer.xmlReportPlugin.utils.ParserUtils;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -27,7 +25,7 @@ import org.jetbrains.annotations.NotNull;
  * Date: 17.02.11
  * Time: 20:28
  */
-class CategoryXmlParser extends XmlXppAbstractParser {
+class CategoryXmlParser extends MetadataXmlParser {
   @NotNull
   private final Callback myCallback;
 
@@ -39,29 +37,7 @@ class CategoryXmlParser extends XmlXppAbstractParser {
   protected List<XmlHandler> getRootHandlers() {
     return Arrays.asList(elementsPatternPath(new Handler() {
       public XmlReturn processElement(@NotNull final XmlElementInfo reader) {
-        return reader.visitChildren(elementsPath(new Handler() {
-          public XmlReturn processElement(@NotNull final XmlElementInfo reader) {
-            final String category = reader.getAttribute("category");
-
-            if (category == null) return reader.noDeep();
-
-            myCallback.categoryFound(category);
-
-            return reader.visitChildren(
-              elementsPath(new TextHandler() {
-                public void setText(@NotNull final String text) {
-                  myCallback.categoryDescriptionFound(category, ParserUtils.formatText(text));
-                }
-              }, "Description"),
-
-              elementsPath(new TextHandler() {
-                public void setText(@NotNull final String text) {
-                  myCallback.categoryDetailsFound(category, ParserUtils.formatText(text));
-                }
-              }, "Details")
-            );
-          }
-        }, "BugCategory"));
+        return reader.visitChildren(getCategoryHandler(myCallback));
       }
     }, ".*Collection"));
   }
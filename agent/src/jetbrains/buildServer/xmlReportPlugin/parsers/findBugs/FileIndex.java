@@ -0,0 +1,202 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.parsers.findBugs;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.zip.ZipFile;
+import jetbrains.buildServer.util.ZipSlipAwareZipFile;
+import jetbrains.buildServer.util.fileLookup.MemorizingFileLookup;
+import jetbrains.buildServer.util.fileLookup.MemorizingZipFileLookup;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Jars, class files and source directories referenced by the FindBugs reports.
+ * The entries and the lookups inside them are shared by all the reports using the index,
+ * at most {@link #MAX_OPEN_ARCHIVES} archives are kept open, the least recently used ones are closed and reopened on demand.
+ */
+class FileIndex {
+  public static final org.apache.log4j.Logger LOG = org.apache.log4j.Logger.getLogger(FileIndex.class);
+
+  static final int MAX_OPEN_ARCHIVES = 64;
+
+  @NotNull
+  private final Map<String, Entry> myEntries = new HashMap<String, Entry>();
+  @NotNull
+  private final LinkedHashMap<ArchiveEntry, Boolean> myOpenArchives = new LinkedHashMap<ArchiveEntry, Boolean>(16, 0.75f, true);
+  private final int myMaxOpenArchives;
+
+  public FileIndex() {
+    this(MAX_OPEN_ARCHIVES);
+  }
+
+  FileIndex(int maxOpenArchives) {
+    myMaxOpenArchives = maxOpenArchives;
+  }
+
+  /**
+   * @param path jar, zip, class file or directory path
+   * @return entry or null if the archive can't be opened
+   */
+  @Nullable
+  public Entry getEntry(@NotNull String path) {
+    synchronized (myEntries) {
+      final Entry existing = myEntries.get(path);
+      if (existing != null) return existing;
+
+      final Entry entry;
+      if (path.endsWith(".zip") || path.endsWith(".jar")) {
+        final ArchiveEntry archive = new ArchiveEntry(path);
+        if (!archive.open()) return null;
+        entry = archive;
+      } else if (path.endsWith(".class")) {
+        entry = new ClassEntry(path);
+      } else {
+        entry = new DirectoryEntry(path);
+      }
+      myEntries.put(path, entry);
+      return entry;
+    }
+  }
+
+  public void close() {
+    final List<ArchiveEntry> archives;
+    synchronized (myOpenArchives) {
+      archives = new ArrayList<ArchiveEntry>(myOpenArchives.keySet());
+      myOpenArchives.clear();
+    }
+    for (ArchiveEntry archive : archives) {
+      archive.close();
+    }
+    synchronized (myEntries) {
+      myEntries.clear();
+    }
+  }
+
+  int getOpenArchivesCount() {
+    synchronized (myOpenArchives) {
+      return myOpenArchives.size();
+    }
+  }
+
+  // archives are closed outside of the index lock as they may be used by other reports at the moment
+  private void used(@NotNull ArchiveEntry archive) {
+    final List<ArchiveEntry> evicted = new ArrayList<ArchiveEntry>();
+    synchronized (myOpenArchives) {
+      myOpenArchives.put(archive, Boolean.TRUE);
+      final Iterator<ArchiveEntry> it = myOpenArchives.keySet().iterator();
+      while (myOpenArchives.size() - evicted.size() > myMaxOpenArchives && it.hasNext()) {
+        evicted.add(it.next());
+        it.remove();
+      }
+    }
+    for (ArchiveEntry e : evicted) {
+      e.close();
+    }
+  }
+
+  static abstract class Entry {
+    @Nullable
+    public abstract String getFilePath(@NotNull String fileName);
+  }
+
+  private static final class DirectoryEntry extends Entry {
+    @NotNull
+    private final MemorizingFileLookup myLookup;
+
+    public DirectoryEntry(@NotNull String root) {
+      myLookup = new MemorizingFileLookup(new File(root));
+    }
+
+    @Override
+    public synchronized String getFilePath(@NotNull String fileName) {
+      final File found = myLookup.lookup(myLookup.createFileInfo(fileName));
+      return found == null ? null : found.getPath();
+    }
+  }
+
+  private final class ArchiveEntry extends Entry {
+    @NotNull
+    private final String myPath;
+    @Nullable
+    private ZipFile myArchive;
+    @Nullable
+    private MemorizingZipFileLookup myLookup;
+
+    public ArchiveEntry(@NotNull String path) {
+      myPath = path;
+    }
+
+    @Override
+    public String getFilePath(@NotNull String fileName) {
+      final String result;
+      synchronized (this) {
+        if (!openIfClosed()) return null;
+        //noinspection ConstantConditions
+        result = myLookup.lookup(MemorizingZipFileLookup.createFileInfo(fileName));
+      }
+      used(this);
+      return result;
+    }
+
+    public boolean open() {
+      synchronized (this) {
+        if (!openIfClosed()) return false;
+      }
+      used(this);
+      return true;
+    }
+
+    private synchronized boolean openIfClosed() {
+      if (myLookup != null) return true;
+      try {
+        myArchive = new ZipSlipAwareZipFile(myPath);
+      } catch (IOException e) {
+        LOG.debug("Couldn't open " + myPath, e);
+        return false;
+      }
+      myLookup = new MemorizingZipFileLookup(myArchive);
+      return true;
+    }
+
+    public synchronized void close() {
+      if (myArchive == null) return;
+      try {
+        myArchive.close();
+      } catch (IOException e) {
+        LOG.debug("Couldn't close " + myPath, e);
+      }
+      myArchive = null;
+      myLookup = null;
+    }
+  }
+
+  private static final class ClassEntry extends Entry {
+    private final String myFile;
+
+    public ClassEntry(String file) {
+      myFile = file;
+    }
+
+    @Override
+    public String getFilePath(@NotNull String fileName) {
+      return myFile.endsWith(fileName) ? myFile : null;
+    }
+  }
+}
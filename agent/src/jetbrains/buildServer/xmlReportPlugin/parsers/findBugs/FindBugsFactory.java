@@ -17,7 +17,12 @@
 package jetbrains.buildServer.xmlReportPlugin.parsers.findBugs;
 
 import java.util.Map;
+import jetbrains.buildServer.agent.AgentLifeCycleAdapter;
+import jetbrains.buildServer.agent.AgentLifeCycleListener;
+import jetbrains.buildServer.agent.AgentRunningBuild;
+import jetbrains.buildServer.agent.BuildFinishedStatus;
 import jetbrains.buildServer.serverSide.TeamCityProperties;
+import jetbrains.buildServer.util.EventDispatcher;
 import jetbrains.buildServer.xmlReportPlugin.*;
 import jetbrains.buildServer.xmlReportPlugin.inspections.InspectionParsingResult;
 import org.jetbrains.annotations.NotNull;
@@ -28,6 +33,26 @@ import org.jetbrains.annotations.NotNull;
  * Time: 20:32
  */
 public class FindBugsFactory implements ParserFactory {
+  @NotNull
+  private final FindBugsMetadataCache myMetadataCache = new FindBugsMetadataCache();
+  @NotNull
+  private volatile FileIndex myFileIndex = new FileIndex();
+
+  public FindBugsFactory() {
+  }
+
+  public FindBugsFactory(@NotNull EventDispatcher<AgentLifeCycleListener> agentDispatcher) {
+    agentDispatcher.addListener(new AgentLifeCycleAdapter() {
+      @Override
+      public void buildFinished(@NotNull final AgentRunningBuild build, @NotNull final BuildFinishedStatus buildStatus) {
+        // the jars and the classes may change between the builds
+        final FileIndex index = myFileIndex;
+        myFileIndex = new FileIndex();
+        index.close();
+      }
+    });
+  }
+
   @NotNull
   @Override
   public String getType() {
@@ -47,7 +72,8 @@ public class FindBugsFactory implements ParserFactory {
   public Parser createParser(@NotNull ParseParameters parameters) {
     final Map<String,String> params = parameters.getParameters();
     return new FindBugsReportParser(parameters.getInspectionReporter(), XmlReportPluginUtil.getFindBugsHomePath(params),
-                                    parameters.getCheckoutDir(), XmlReportPluginUtil.isFindBugsLookupFiles(params));
+                                    parameters.getCheckoutDir(), XmlReportPluginUtil.isFindBugsLookupFiles(params),
+                                    myMetadataCache, myFileIndex);
   }
 
   @NotNull
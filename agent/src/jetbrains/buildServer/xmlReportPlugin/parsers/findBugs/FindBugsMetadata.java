@@ -0,0 +1,190 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.parsers.findBugs;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.swing.text.html.parser.DTD;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Names and descriptions of the bug patterns and categories.
+ *
+ * The entries are never modified after they are loaded, the later definitions replace them with the updated copies,
+ * so the metadata copy may be extended without affecting the original one.
+ */
+class FindBugsMetadata implements PatternXmlParser.Callback, CategoryXmlParser.Callback {
+  public static final org.apache.log4j.Logger LOG = org.apache.log4j.Logger.getLogger(FindBugsMetadata.class);
+
+  static final int FORMATTED_DETAILS_CACHE_SIZE = 2048;
+
+  // the same pattern and category details come with every report, formatting them is much slower than parsing the report
+  private static final Map<String, String> ourFormattedDetails = new LinkedHashMap<String, String>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+      return size() > FORMATTED_DETAILS_CACHE_SIZE;
+    }
+  };
+
+  @NotNull
+  private final Map<String, NameAndDescritionInfo> myPatterns;
+  @NotNull
+  private final Map<String, NameAndDescritionInfo> myCategories;
+  private boolean myComplete = true;
+
+  @Nullable
+  private DetailsParser myDetailsParser;
+  private boolean myDetailsParserCreated;
+
+  public FindBugsMetadata() {
+    myPatterns = new HashMap<String, NameAndDescritionInfo>();
+    myCategories = new HashMap<String, NameAndDescritionInfo>();
+  }
+
+  public FindBugsMetadata(@NotNull FindBugsMetadata base) {
+    myPatterns = new HashMap<String, NameAndDescritionInfo>(base.myPatterns);
+    myCategories = new HashMap<String, NameAndDescritionInfo>(base.myCategories);
+    myComplete = base.myComplete;
+  }
+
+  /**
+   * Loads the bug patterns and categories defined in the given FindBugs plugin messages.xml content
+   */
+  public void load(@NotNull byte[] messages) throws IOException {
+    new PatternXmlParser(this).parse(createReader(messages));
+    new CategoryXmlParser(this).parse(createReader(messages));
+  }
+
+  @NotNull
+  private static Reader createReader(@NotNull byte[] messages) {
+    // plugin messages.xml files are always UTF-8, localized ones are not loaded
+    return new InputStreamReader(new ByteArrayInputStream(messages), Charset.forName("UTF-8"));
+  }
+
+  public void patternFound(@NotNull final String type) {
+    myPatterns.put(type, copy(myPatterns.get(type)));
+  }
+
+  public void patternShortDescriptionFound(@NotNull final String type, @NotNull final String description) {
+    myPatterns.get(type).setName(description);
+  }
+
+  public void patternDetailsFound(@NotNull final String type, @NotNull final String details) {
+    myPatterns.get(type).setDescription(formatText(details));
+  }
+
+  public void categoryFound(@NotNull final String category) {
+    myCategories.put(category, copy(myCategories.get(category)));
+  }
+
+  public void categoryDescriptionFound(@NotNull final String category, @NotNull final String description) {
+    myCategories.get(category).setName(description);
+  }
+
+  public void categoryDetailsFound(@NotNull final String category, @NotNull final String details) {
+    final String text = formatText(details);
+    myCategories.get(category).setDescription(text.substring(0, 1).toUpperCase() + text.substring(1));
+  }
+
+  @Nullable
+  public NameAndDescritionInfo getPattern(@Nullable String type) {
+    return myPatterns.get(type);
+  }
+
+  @Nullable
+  public NameAndDescritionInfo getCategory(@Nullable String category) {
+    return myCategories.get(category);
+  }
+
+  /**
+   * @return false if some of the definitions failed to load
+   */
+  public boolean isComplete() {
+    return myComplete;
+  }
+
+  public void setIncomplete() {
+    myComplete = false;
+  }
+
+  @NotNull
+  private static NameAndDescritionInfo copy(@Nullable NameAndDescritionInfo info) {
+    final NameAndDescritionInfo copy = new NameAndDescritionInfo();
+    if (info != null) {
+      copy.setName(info.getName());
+      copy.setDescription(info.getDescription());
+    }
+    return copy;
+  }
+
+  @NotNull
+  private String formatText(@NotNull String s) {
+    synchronized (ourFormattedDetails) {
+      final String cached = ourFormattedDetails.get(s);
+      if (cached != null) return cached;
+    }
+    if (!myDetailsParserCreated) {
+      myDetailsParserCreated = true;
+      try {
+        myDetailsParser = new DetailsParser(DTD.getDTD(""));
+      } catch (IOException e) {
+        LOG.warn("Failed to create empty DTD");
+      }
+    }
+    if (myDetailsParser == null) return s;
+    try {
+      myDetailsParser.parse(new BufferedReader(new StringReader(s)));
+    } catch (IOException e) {
+      LOG.warn("Couldn't format html description to text", e);
+      return myDetailsParser.getText().replace("&nbsp", "");
+    }
+    final String text = myDetailsParser.getText().replace("&nbsp", "");
+    synchronized (ourFormattedDetails) {
+      ourFormattedDetails.put(s, text);
+    }
+    return text;
+  }
+
+  static final class NameAndDescritionInfo {
+    @NotNull
+    private String myName = "";
+    @NotNull
+    private String myDescription = "";
+
+    @NotNull
+    public String getName() {
+      return myName;
+    }
+
+    public void setName(@NotNull final String name) {
+      myName = name;
+    }
+
+    @NotNull
+    public String getDescription() {
+      return myDescription;
+    }
+
+    public void setDescription(@NotNull final String description) {
+      myDescription = description;
+    }
+  }
+}
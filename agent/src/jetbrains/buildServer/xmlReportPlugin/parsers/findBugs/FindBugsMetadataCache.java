@@ -0,0 +1,117 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.parsers.findBugs;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Bug patterns and categories defined by the plugins of FindBugs installations.
+ * The plugins are loaded once and reloaded only if some plugin jar is added, removed or modified,
+ * the loaded metadata is shared by all the reports. Metadata which failed to load completely is not cached,
+ * so the plugins are loaded again for the next report.
+ */
+class FindBugsMetadataCache {
+  @NotNull
+  private final Map<File, Entry> myEntries = new HashMap<File, Entry>();
+
+  /**
+   * @return metadata which must not be modified, create a copy to extend it
+   */
+  @NotNull
+  public synchronized FindBugsMetadata getPluginsMetadata(@NotNull File findBugsHome) {
+    final List<PluginStamp> stamps = getStamps(findBugsHome);
+
+    final Entry cached = myEntries.get(findBugsHome);
+    if (cached != null && cached.myStamps.equals(stamps)) return cached.myMetadata;
+
+    final FindBugsMetadata metadata = new FindBugsMetadata();
+    new FindBugsPluginVisitor(new FindBugsPluginVisitor.Callback() {
+      @Override
+      public void pluginFound(@NotNull byte[] messages) {
+        try {
+          metadata.load(messages);
+        } catch (IOException e) {
+          metadata.setIncomplete();
+        }
+      }
+    }).visit(findBugsHome);
+
+    if (metadata.isComplete()) {
+      myEntries.put(findBugsHome, new Entry(stamps, metadata));
+    } else {
+      myEntries.remove(findBugsHome);
+    }
+    return metadata;
+  }
+
+  @NotNull
+  private static List<PluginStamp> getStamps(@NotNull File findBugsHome) {
+    final List<PluginStamp> stamps = new ArrayList<PluginStamp>();
+    for (File plugin : FindBugsPluginVisitor.getPlugins(findBugsHome)) {
+      stamps.add(new PluginStamp(plugin));
+    }
+    return stamps;
+  }
+
+  private static final class Entry {
+    @NotNull
+    private final List<PluginStamp> myStamps;
+    @NotNull
+    private final FindBugsMetadata myMetadata;
+
+    private Entry(@NotNull List<PluginStamp> stamps, @NotNull FindBugsMetadata metadata) {
+      myStamps = stamps;
+      myMetadata = metadata;
+    }
+  }
+
+  private static final class PluginStamp {
+    @NotNull
+    private final String myPath;
+    private final long myLength;
+    private final long myLastModified;
+
+    private PluginStamp(@NotNull File plugin) {
+      myPath = plugin.getAbsolutePath();
+      myLength = plugin.length();
+      myLastModified = plugin.lastModified();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+
+      final PluginStamp that = (PluginStamp) o;
+      return myLength == that.myLength && myLastModified == that.myLastModified && myPath.equals(that.myPath);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = myPath.hashCode();
+      result = 31 * result + (int) (myLength ^ (myLength >>> 32));
+      result = 31 * result + (int) (myLastModified ^ (myLastModified >>> 32));
+      return result;
+    }
+  }
+}
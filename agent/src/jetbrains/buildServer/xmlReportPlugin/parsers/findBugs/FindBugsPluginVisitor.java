@@ -17,7 +17,8 @@
 package jetbrains.buildServer.xmlReportPlugin.parsers.findBugs;
 
 import java.io.*;
-import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import jetbrains.buildServer.util.FileUtil;
@@ -42,22 +43,35 @@ class FindBugsPluginVisitor {
   public void visit(@NotNull final File findBugsHome) {
     LOG.info("Visiting FindBugs plugins under " + findBugsHome);
 
+    for (File plugin : getPlugins(findBugsHome)) {
+      load(plugin);
+    }
+  }
+
+  /**
+   * @return core plugin followed by the additional ones
+   */
+  @NotNull
+  public static List<File> getPlugins(@NotNull final File findBugsHome) {
+    final List<File> result = new ArrayList<File>();
+
     final File corePlugin = new File(findBugsHome, "lib/findbugs.jar");
     if (!corePlugin.isFile()) {
       LOG.info("Couldn't find core plugin " + corePlugin + ". Ensure specified FindBugs home path is correct");
     } else {
-      load(corePlugin);
+      result.add(corePlugin);
     }
     final File pluginFolder = new File(findBugsHome, "plugin");
     final File[] plugins = pluginFolder.listFiles();
     if (plugins == null) {
-      return;
+      return result;
     }
-      for (File p : plugins) {
-        if (p.getAbsolutePath().endsWith(".jar")) {
-        load(p);
+    for (File p : plugins) {
+      if (p.getAbsolutePath().endsWith(".jar")) {
+        result.add(p);
       }
     }
+    return result;
   }
 
   private void load(@NotNull File file) {
@@ -72,24 +86,17 @@ class FindBugsPluginVisitor {
         return;
       }
 
-      final File tempFile = FileUtil.createTempFile("", "");
-      InputStream jarFileStream = null;
-      OutputStream tempFileStream = null;
+      final ByteArrayOutputStream content = new ByteArrayOutputStream((int) Math.max(messages.getSize(), 0));
+      final InputStream jarFileStream = jar.getInputStream(messages);
       try {
-        jarFileStream = jar.getInputStream(messages);
-        tempFileStream = Files.newOutputStream(tempFile.toPath());
-
-        FileUtil.copy(jarFileStream, tempFileStream);
+        FileUtil.copy(jarFileStream, content);
       } finally {
         FileUtil.close(jarFileStream);
-        FileUtil.close(tempFileStream);
       }
 
-      myCallback.pluginFound(tempFile);
-
-      FileUtil.delete(tempFile);
+      myCallback.pluginFound(content.toByteArray());
     } catch (Exception e) {
-      LOG.warn("Couldn't copy out messages.xml from plugin " + file, e);
+      LOG.warn("Couldn't read messages.xml from plugin " + file, e);
     } finally {
       try {
         if (jar != null) {
@@ -102,6 +109,6 @@ class FindBugsPluginVisitor {
   }
 
   public interface Callback {
-    void pluginFound(@NotNull File messages);
+    void pluginFound(@NotNull byte[] messages);
   }
 }
@@ -16,13 +16,12 @@
 
 package jetbrains.buildServer.xmlReportPlugin.parsers.findBugs;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import javax.swing.text.html.parser.DTD;
 import jetbrains.buildServer.util.FileUtil;
 import jetbrains.buildServer.util.StringUtil;
 import jetbrains.buildServer.xmlReportPlugin.Parser;
@@ -53,20 +52,11 @@ class FindBugsReportParser implements Parser {
   private int myInfos;
 
   @NotNull
-  private final PatternXmlParser myPatternXmlParser;
-  @NotNull
-  private final Map<String, NameAndDescritionInfo> myPatterns = new HashMap<String, NameAndDescritionInfo>();
-  @NotNull
-  private final CategoryXmlParser myCategoryXmlParser;
-  @NotNull
-  private final Map<String, NameAndDescritionInfo> myCategories = new HashMap<String, NameAndDescritionInfo>();
+  private final FindBugsMetadataCache myMetadataCache;
 
   @NotNull
   private final FileFinder myFileFinder;
 
-  @Nullable
-  private DetailsParser myDetailsParser;
-
   public FindBugsReportParser(@NotNull final InspectionReporter inspectionReporter,
                               @Nullable final String findBugsHome,
                               @NotNull final File baseFolder) {
@@ -77,79 +67,58 @@ class FindBugsReportParser implements Parser {
                               @Nullable final String findBugsHome,
                               @NotNull final File baseFolder,
                               boolean lookForFiles) {
+    this(inspectionReporter, findBugsHome, baseFolder, lookForFiles, new FindBugsMetadataCache(), null);
+  }
+
+  public FindBugsReportParser(@NotNull final InspectionReporter inspectionReporter,
+                              @Nullable final String findBugsHome,
+                              @NotNull final File baseFolder,
+                              boolean lookForFiles,
+                              @NotNull final FindBugsMetadataCache metadataCache,
+                              @Nullable final FileIndex fileIndex) {
     myInspectionReporter = inspectionReporter;
     myBaseFolder = baseFolder;
     myFindBugsHome = findBugsHome == null ? null : new File(findBugsHome);
+    myMetadataCache = metadataCache;
 
-    myPatternXmlParser = new PatternXmlParser(new PatternXmlParser.Callback() {
-      public void patternFound(@NotNull final String type) {
-        if (!myPatterns.containsKey(type)) myPatterns.put(type, new NameAndDescritionInfo());
-      }
-
-      public void patternShortDescriptionFound(@NotNull final String type, @NotNull final String description) {
-        myPatterns.get(type).setName(description);
-      }
-
-      public void patternDetailsFound(@NotNull final String type, @NotNull final String details) {
-        myPatterns.get(type).setDescription(formatText(details));
-      }
-    });
-
-    myCategoryXmlParser = new CategoryXmlParser(new CategoryXmlParser.Callback() {
-      public void categoryFound(@NotNull final String category) {
-        if (!myCategories.containsKey(category)) myCategories.put(category, new NameAndDescritionInfo());
-      }
-
-      public void categoryDescriptionFound(@NotNull final String category, @NotNull final String description) {
-        myCategories.get(category).setName(description);
-      }
-
-      public void categoryDetailsFound(@NotNull final String category, @NotNull final String details) {
-        final String text = formatText(details);
-        myCategories.get(category).setDescription(text.substring(0, 1).toUpperCase() + text.substring(1));
-      }
-    });
-
-    myFileFinder = lookForFiles ? new FileFinder() : new FileFinder() {
-      @Override
-      public void addJar(@NotNull final String jar) {}
-      @Override
-      public String getVeryFullFilePath(@Nullable final String filePath) {return null;}
-      @Override
-      public void close() {}
-    };
-
-    try {
-      myDetailsParser = new DetailsParser(DTD.getDTD(""));
-    } catch (IOException e) {
-      LOG.warn("Failed to create empty DTD");
+    if (!lookForFiles) {
+      myFileFinder = new FileFinder() {
+        @Override
+        public void addJar(@NotNull final String jar) {}
+        @Override
+        public String getVeryFullFilePath(@Nullable final String filePath) {return null;}
+        @Override
+        public void close() {}
+      };
+    } else if (fileIndex != null) {
+      myFileFinder = new FileFinder(fileIndex);
+    } else {
+      myFileFinder = new FileFinder();
     }
   }
 
   public boolean parse(@NotNull final File file, @Nullable final ParsingResult prevResult) throws ParsingException {
-    if (!ParserUtils.isReportComplete(file, "BugCollection")) {
+    if (!ParserUtils.isReportClosed(file, "BugCollection")) {
       return false;
     }
 
+    final FindBugsMetadata metadata;
     if (myFindBugsHome != null) {
-      new FindBugsPluginVisitor(new FindBugsPluginVisitor.Callback() {
-        @Override
-        public void pluginFound(@NotNull File messages) {
-          try {
-            myPatternXmlParser.parse(messages);
-            myCategoryXmlParser.parse(messages);
-          } catch (IOException e) {
-            myInspectionReporter.error("Error occurred while loading bug patterns from " + myFindBugsHome);
-          }
-        }
-      }).visit(myFindBugsHome);
+      final FindBugsMetadata pluginsMetadata = myMetadataCache.getPluginsMetadata(myFindBugsHome);
+      if (!pluginsMetadata.isComplete()) {
+        myInspectionReporter.error("Error occurred while loading bug patterns from " + myFindBugsHome);
+      }
+      metadata = new FindBugsMetadata(pluginsMetadata);
+    } else {
+      metadata = new FindBugsMetadata();
     }
 
+    final List<BugInstance> bugs = new ArrayList<BugInstance>();
     try {
-      myPatternXmlParser.parse(file);
-      myCategoryXmlParser.parse(file);
-
       new FindBugsReportXmlParser(new FindBugsReportXmlParser.Callback() {
+        @NotNull
+        private final Map<String, String> myNames = new HashMap<String, String>();
+
         public void jarFound(@NotNull final String jar) {
           myFileFinder.addJar(FileUtil.resolvePath(myBaseFolder, jar).getAbsolutePath());
         }
@@ -162,23 +131,45 @@ class FindBugsReportParser implements Parser {
                                      @Nullable final String message,
                                      @Nullable final String details,
                                      final int priority) {
-          switch (priority) {
-            case 1:
-              ++myErrors;
-              break;
-            case 2:
-              ++myWarnings;
-              break;
-            default:
-              ++myInfos;
-          }
-          final String cName = myCategories.containsKey(category) ? myCategories.get(category).getName() : category;
-          final String descr = myCategories.containsKey(category) ? myCategories.get(category).getDescription() : null;
-          final String mess = getFullMessage(message, myPatterns.containsKey(type) ? myPatterns.get(type).getDescription() : null, details);
-          final String pName = myPatterns.containsKey(type) ? myPatterns.get(type).getName() : type;
-
-          myInspectionReporter.reportInspectionType(new InspectionTypeResult(type, pName, descr, cName));
-          myInspectionReporter.reportInspection(new InspectionResult(findFile(file, clazz), type, mess, line, priority));
+          // the jars are listed before the bug instances, so the file can be found right away
+          final String filePath = share(findFile(file, clazz));
+          final BugInstance bug = StringUtil.isEmpty(message)
+                                  ? new BugInstance(filePath, line, share(type), share(category), details, true, priority)
+                                  : new BugInstance(filePath, line, share(type), share(category), getFullMessage(message, null, details), false, priority);
+          bugs.add(bug);
+        }
+
+        @Nullable
+        private String share(@Nullable String name) {
+          if (name == null) return null;
+          final String shared = myNames.get(name);
+          if (shared != null) return shared;
+          myNames.put(name, name);
+          return name;
+        }
+
+        public void patternFound(@NotNull final String type) {
+          metadata.patternFound(type);
+        }
+
+        public void patternShortDescriptionFound(@NotNull final String type, @NotNull final String description) {
+          metadata.patternShortDescriptionFound(type, description);
+        }
+
+        public void patternDetailsFound(@NotNull final String type, @NotNull final String details) {
+          metadata.patternDetailsFound(type, details);
+        }
+
+        public void categoryFound(@NotNull final String category) {
+          metadata.categoryFound(category);
+        }
+
+        public void categoryDescriptionFound(@NotNull final String category, @NotNull final String description) {
+          metadata.categoryDescriptionFound(category, description);
+        }
+
+        public void categoryDetailsFound(@NotNull final String category, @NotNull final String details) {
+          metadata.categoryDetailsFound(category, details);
         }
 
         @Override
@@ -186,6 +177,10 @@ class FindBugsReportParser implements Parser {
           myInspectionReporter.error(message);
         }
       }).parse(file);
+
+      for (BugInstance bug : bugs) {
+        report(bug, metadata);
+      }
     } catch (IOException e) {
       throw new ParsingException(e);
     } finally {
@@ -194,6 +189,28 @@ class FindBugsReportParser implements Parser {
     return true;
   }
 
+  private void report(@NotNull BugInstance bug, @NotNull FindBugsMetadata metadata) {
+    switch (bug.myPriority) {
+      case 1:
+        ++myErrors;
+        break;
+      case 2:
+        ++myWarnings;
+        break;
+      default:
+        ++myInfos;
+    }
+    final FindBugsMetadata.NameAndDescritionInfo categoryInfo = metadata.getCategory(bug.myCategory);
+    final FindBugsMetadata.NameAndDescritionInfo patternInfo = metadata.getPattern(bug.myType);
+    final String cName = categoryInfo != null ? categoryInfo.getName() : bug.myCategory;
+    final String descr = categoryInfo != null ? categoryInfo.getDescription() : null;
+    final String mess = bug.myDefaultMessage ? getFullMessage(null, patternInfo != null ? patternInfo.getDescription() : null, bug.myMessage) : bug.myMessage;
+    final String pName = patternInfo != null ? patternInfo.getName() : bug.myType;
+
+    myInspectionReporter.reportInspectionType(new InspectionTypeResult(bug.myType, pName, descr, cName));
+    myInspectionReporter.reportInspection(new InspectionResult(bug.myFile, bug.myType, mess, bug.myLine, bug.myPriority));
+  }
+
   @Nullable
   private static String getFullMessage(@Nullable String message, @Nullable String defaultMessage, @Nullable String details) {
     if (StringUtil.isEmpty(message)) message = defaultMessage;
@@ -227,40 +244,33 @@ class FindBugsReportParser implements Parser {
     return clazz;
   }
 
-  @SuppressWarnings({"ConstantConditions"})
-  private String formatText(@NotNull String s) {
-    if (myDetailsParser == null) return s;
-    try {
-      myDetailsParser.parse(new BufferedReader(new StringReader(s)));
-    } catch (IOException e) {
-      LOG.warn("Couldn't format html description to text", e);
-    }
-    return myDetailsParser.getText().replace("&nbsp", "");
-  }
-
-
-  private static final class NameAndDescritionInfo {
-    @NotNull
-    private String myName = "";
-    @NotNull
-    private String myDescription = "";
-
-    @NotNull
-    public String getName() {
-      return myName;
-    }
-
-    public void setName(@NotNull final String name) {
-      myName = name;
-    }
-
-    @NotNull
-    public String getDescription() {
-      return myDescription;
-    }
-
-    public void setDescription(@NotNull final String description) {
-      myDescription = description;
+  /**
+   * Bug instance waiting for the bug patterns and categories defined at the end of the report,
+   * only the values it is reported with are kept
+   */
+  private static final class BugInstance {
+    @Nullable
+    private final String myFile;
+    private final int myLine;
+    @Nullable
+    private final String myType;
+    @Nullable
+    private final String myCategory;
+    // the message with the details, or only the details if the message of the pattern should precede them
+    @Nullable
+    private final String myMessage;
+    private final boolean myDefaultMessage;
+    private final int myPriority;
+
+    private BugInstance(@Nullable String file, int line, @Nullable String type, @Nullable String category,
+                        @Nullable String message, boolean defaultMessage, int priority) {
+      myFile = file;
+      myLine = line;
+      myType = type;
+      myCategory = category;
+      myMessage = message;
+      myDefaultMessage = defaultMessage;
+      myPriority = priority;
     }
   }
 }
\ No newline at end of file
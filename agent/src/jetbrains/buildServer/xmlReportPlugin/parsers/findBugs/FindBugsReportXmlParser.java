@@ -18,7 +18,6 @@ package jetbrains.buildServer.xmlReportPlugin.parsers.findBugs;
 
 import java.util.List;
 import jetbrains.buildServer.util.XmlXppAbstractParser;
-import jetbrains.buildServer.xmlReportPlugin.parsers.BaseXmlXppAbstractParser;
 import jetbrains.buildServer.xmlReportPlugin.utils.ParserUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -28,7 +27,7 @@ import org.jetbrains.annotations.Nullable;
  * Date: 18.02.11
  * Time: 14:38
  */
-class FindBugsReportXmlParser extends BaseXmlXppAbstractParser {
+class FindBugsReportXmlParser extends MetadataXmlParser {
   @NotNull
   private final Callback myCallback;
 
@@ -119,7 +118,11 @@ class FindBugsReportXmlParser extends BaseXmlXppAbstractParser {
                 }
               });
             }
-          }, "BugInstance")
+          }, "BugInstance"),
+
+          getPatternHandler(myCallback),
+
+          getCategoryHandler(myCallback)
         );
       }
     }, "BugCollection")) {
@@ -138,7 +141,10 @@ class FindBugsReportXmlParser extends BaseXmlXppAbstractParser {
     }
   }
 
-  public interface Callback {
+  /**
+   * Bug patterns and categories are defined after the bug instances, so the instances should be resolved when the report is parsed
+   */
+  public interface Callback extends PatternXmlParser.Callback, CategoryXmlParser.Callback {
     void jarFound(@NotNull String jar);
     void bugInstanceFound(@Nullable String file, @Nullable String clazz, int line,
                           @Nullable String type, @Nullable String category, @Nullable String message, @Nullable String details, int priority);
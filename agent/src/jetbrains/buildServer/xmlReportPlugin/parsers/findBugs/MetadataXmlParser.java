@@ -0,0 +1,80 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.parsers.findBugs;
+
+import jetbrains.buildServer.xmlReportPlugin.parsers.BaseXmlXppAbstractParser;
+import jetbrains.buildServer.xmlReportPlugin.utils.ParserUtils;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Handlers of the BugPattern and BugCategory elements which are found both in the plugin messages.xml files and in the reports
+ */
+abstract class MetadataXmlParser extends BaseXmlXppAbstractParser {
+  @NotNull
+  protected XmlHandler getPatternHandler(@NotNull final PatternXmlParser.Callback callback) {
+    return elementsPath(new Handler() {
+      public XmlReturn processElement(@NotNull final XmlElementInfo reader) {
+        final String type = reader.getAttribute("type");
+
+        if (type == null) return reader.noDeep();
+
+        callback.patternFound(type);
+
+        return reader.visitChildren(
+          elementsPath(new TextHandler() {
+            public void setText(@NotNull final String text) {
+              callback.patternShortDescriptionFound(type, ParserUtils.formatText(text));
+            }
+          }, "ShortDescription"),
+
+          elementsPath(new TextHandler() {
+            public void setText(@NotNull final String text) {
+              callback.patternDetailsFound(type, ParserUtils.formatText(text));
+            }
+          }, "Details")
+        );
+      }
+    }, "BugPattern");
+  }
+
+  @NotNull
+  protected XmlHandler getCategoryHandler(@NotNull final CategoryXmlParser.Callback callback) {
+    return elementsPath(new Handler() {
+      public XmlReturn processElement(@NotNull final XmlElementInfo reader) {
+        final String category = reader.getAttribute("category");
+
+        if (category == null) return reader.noDeep();
+
+        callback.categoryFound(category);
+
+        return reader.visitChildren(
+          elementsPath(new TextHandler() {
+            public void setText(@NotNull final String text) {
+              callback.categoryDescriptionFound(category, ParserUtils.formatText(text));
+            }
+          }, "Description"),
+
+          elementsPath(new TextHandler() {
+            public void setText(@NotNull final String text) {
+              callback.categoryDetailsFound(category, ParserUtils.formatText(text));
+            }
+          }, "Details")
+        );
+      }
+    }, "BugCategory");
+  }
+}
@@ -18,8 +18,6 @@ package jetbrains.buildServer.xmlReportPlugin.parsers.findBugs;
 
 import java.util.Arrays;
 import java.util.List;
-import jetbrains.buildServer.util.XmlXppAbstractParser;
-import jetbrains.buildServer.xmlReportPlugin.utils.ParserUtils;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -27,7 +25,7 @@ import org.jetbrains.annotations.NotNull;
  * Date: 17.02.11
  * Time: 20:28
  */
-class PatternXmlParser extends XmlXppAbstractParser {
+class PatternXmlParser extends MetadataXmlParser {
   @NotNull
   private final Callback myCallback;
 
@@ -39,29 +37,7 @@ class PatternXmlParser extends XmlXppAbstractParser {
   protected List<XmlHandler> getRootHandlers() {
     return Arrays.asList(elementsPatternPath(new Handler() {
       public XmlReturn processElement(@NotNull final XmlElementInfo reader) {
-        return reader.visitChildren(elementsPath(new Handler() {
-          public XmlReturn processElement(@NotNull final XmlElementInfo reader) {
-            final String type = reader.getAttribute("type");
-
-            if (type == null) return reader.noDeep();
-
-            myCallback.patternFound(type);
-
-            return reader.visitChildren(
-              elementsPath(new TextHandler() {
-                public void setText(@NotNull final String text) {
-                  myCallback.patternShortDescriptionFound(type, ParserUtils.formatText(text));
-                }
-              }, "ShortDescription"),
-
-              elementsPath(new TextHandler() {
-                public void setText(@NotNull final String text) {
-                  myCallback.patternDetailsFound(type, ParserUtils.formatText(text));
-                }
-              }, "Details")
-            );
-          }
-        }, "BugPattern"));
+        return reader.visitChildren(getPatternHandler(myCallback));
       }
     }, ".*Collection"));
   }
@@ -43,7 +43,7 @@ class JSLintReportParser implements Parser {
 
   @Override
   public boolean parse(@NotNull final File file, @Nullable final ParsingResult prevResult) throws ParsingException {
-    if (!ParserUtils.isReportComplete(file, "jslint")) {
+    if (!ParserUtils.isReportClosed(file, "jslint")) {
       return false;
     }
 
@@ -19,6 +19,7 @@ package jetbrains.buildServer.xmlReportPlugin.parsers.mstest;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import jetbrains.buildServer.xmlReportPlugin.utils.DurationUtils;
 import org.apache.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -31,6 +32,8 @@ class DurationParser {
   private static final Logger LOG = Logger.getLogger(DurationParser.class.getName());
 
   public long parseTestDuration(@NotNull final String duration) {
+    final long millis = DurationUtils.parseTimeSpan(duration, 0, duration.length());
+    if (millis != DurationUtils.UNPARSED) return millis;
     try {
       String[] durations = duration.split(":");
       if (durations.length != 3) {
@@ -49,6 +52,13 @@ class DurationParser {
   }
 
   public long parseTestDuration(@NotNull final String startTime, @NotNull final String endTime) {
+    final long startMillis = parseLocalTimestamp(startTime);
+    final long endMillis = parseLocalTimestamp(endTime);
+    if (startMillis != DurationUtils.UNPARSED && endMillis != DurationUtils.UNPARSED) {
+      // whole seconds like the date format below gives
+      return (Math.floorDiv(endMillis, 1000) - Math.floorDiv(startMillis, 1000)) * 1000;
+    }
+
     Long start = parseDotNetTime(startTime);
     Long finish = parseDotNetTime(endTime);
 
@@ -56,9 +66,19 @@ class DurationParser {
     return finish - start;
   }
 
+  // the offset is ignored like in the date format below
+  private static long parseLocalTimestamp(@NotNull String time) {
+    for (int i = 19; i < time.length(); ++i) {
+      final char c = time.charAt(i);
+      if (c == 'Z' || c == '+' || c == '-') return DurationUtils.parseTimestamp(time, 0, i);
+    }
+    return DurationUtils.parseTimestamp(time, 0, time.length());
+  }
+
   @Nullable
   private Long parseDotNetTime(@NotNull String time) {
     //NOTE: We ommit timezone because we need only a duration. Incoming format is like: 2010-02-12T14:44:45.9393792+00:00
+    //NOTE: Used only for the timestamps DurationUtils doesn't accept, the format isn't thread-safe so it is created for each call
     SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
 
     try {
@@ -18,8 +18,8 @@ package jetbrains.buildServer.xmlReportPlugin.parsers.mstest;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.Reader;
+import jetbrains.buildServer.util.FileUtil;
 import jetbrains.buildServer.xmlReportPlugin.Parser;
 import jetbrains.buildServer.xmlReportPlugin.ParsingException;
 import jetbrains.buildServer.xmlReportPlugin.ParsingResult;
@@ -39,7 +39,7 @@ class TRXParser implements Parser {
   private final TestNamesTableParser myNamesParser;
   private final TestResultsTableParser myResultsParser;
 
-  private final Map<String,String> myTestIdToName = new HashMap<String,String>();
+  private final TestNameTable myTestIdToName = new TestNameTable();
 
   @NotNull
   private final TestReporter myLogger;
@@ -149,7 +149,7 @@ class TRXParser implements Parser {
 
     myTestIdToName.clear();
     try {
-      myNamesParser.parse(file);
+      parseNames(file);
 
       if (myTestIdToName.size() == 0) {
         myLogger.error("There were no test definitions found. Wrong or broken .trx file?");
@@ -173,6 +173,21 @@ class TRXParser implements Parser {
     return true;
   }
 
+  // only the definitions are read for the names, so the large results with the test output are read once
+  private void parseNames(@NotNull File file) throws IOException {
+    final TestDefinitionsRegion definitions = TestDefinitionsRegion.find(file);
+    if (definitions == null) {
+      myNamesParser.parse(file);
+      return;
+    }
+    final Reader reader = definitions.createReader();
+    try {
+      myNamesParser.parse(reader);
+    } finally {
+      FileUtil.close(reader);
+    }
+  }
+
   public ParsingResult getParsingResult() {
     return new TestParsingResult(1, myReportedTestsCount);
   }
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.parsers.mstest;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import jetbrains.buildServer.util.FileUtil;
+import jetbrains.buildServer.xmlReportPlugin.parsers.CheckpointingInputStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Byte range of the TestDefinitions element of a TRX report.
+ *
+ * MSTest writes the definitions before the results and VSTest writes them after the results,
+ * so the range is searched from the beginning of the report up to the results and from the end of the report back to the results.
+ * The results which hold the test output are the largest part of the report and are never read here.
+ */
+class TestDefinitionsRegion {
+  private static final int CHUNK_LENGTH = 64 * 1024;
+  private static final int HEAD_LENGTH = 4 * 1024;
+
+  private static final byte[] ROOT = bytes("<TestRun");
+  private static final byte[] ROOT_END = bytes("</TestRun>");
+  private static final byte[] DEFINITIONS = bytes("<TestDefinitions");
+  private static final byte[] DEFINITIONS_END = bytes("</TestDefinitions>");
+  private static final byte[] RESULTS = bytes("<Results");
+  private static final byte[] RESULTS_END = bytes("</Results>");
+
+  @NotNull
+  private final File myFile;
+  @NotNull
+  private final byte[] myRoot;
+  @NotNull
+  private final String myCharset;
+  private final long myStart;
+  private final long myEnd;
+
+  private TestDefinitionsRegion(@NotNull File file, @NotNull byte[] root, @NotNull String charset, long start, long end) {
+    myFile = file;
+    myRoot = root;
+    myCharset = charset;
+    myStart = start;
+    myEnd = end;
+  }
+
+  public long getStart() {
+    return myStart;
+  }
+
+  public long getEnd() {
+    return myEnd;
+  }
+
+  /**
+   * @return reader of the TestDefinitions element wrapped into the TestRun root element of the report
+   */
+  @NotNull
+  public Reader createReader() throws IOException {
+    final InputStream region = new RegionInputStream(myFile, myStart, myEnd);
+    return new InputStreamReader(new SequenceInputStream(new ByteArrayInputStream(myRoot),
+                                                         new SequenceInputStream(region, new ByteArrayInputStream(ROOT_END))),
+                                 myCharset);
+  }
+
+  /**
+   * @return null if the report is not a TestRun report with a single TestDefinitions element or its encoding isn't ASCII compatible
+   */
+  @Nullable
+  public static TestDefinitionsRegion find(@NotNull File file) throws IOException {
+    final RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      return find(file, raf);
+    } finally {
+      FileUtil.close(raf);
+    }
+  }
+
+  @Nullable
+  private static TestDefinitionsRegion find(@NotNull File file, @NotNull RandomAccessFile raf) throws IOException {
+    final byte[] head = new byte[(int) Math.min(HEAD_LENGTH, raf.length())];
+    raf.readFully(head);
+
+    final String charset = CheckpointingInputStream.detectCharset(head, head.length);
+    if (!CheckpointingInputStream.isAsciiCompatible(charset)) return null;
+
+    final byte[] root = getRootTag(head, ROOT);
+    if (root == null) return null;
+
+    final Match first = findForward(raf, 0, DEFINITIONS, RESULTS);
+    if (first == null) return null;
+
+    if (first.myPattern == DEFINITIONS) {
+      final long end = getElementEnd(raf, first.myOffset, DEFINITIONS_END);
+      return end < 0 ? null : new TestDefinitionsRegion(file, root, charset, first.myOffset, end);
+    }
+
+    final Match last = findBackward(raf, raf.length(), first.myOffset, DEFINITIONS_END, DEFINITIONS, RESULTS_END);
+    if (last == null || last.myPattern == RESULTS_END) return null;
+
+    if (last.myPattern == DEFINITIONS) {
+      // <TestDefinitions /> has no end tag
+      final long end = getElementEnd(raf, last.myOffset, DEFINITIONS_END);
+      return end < 0 ? null : new TestDefinitionsRegion(file, root, charset, last.myOffset, end);
+    }
+
+    final Match start = findBackward(raf, last.myOffset, first.myOffset, DEFINITIONS);
+    if (start == null) return null;
+    return new TestDefinitionsRegion(file, root, charset, start.myOffset, last.myOffset + DEFINITIONS_END.length);
+  }
+
+  // the document element start tag, only the xml declaration, comments and whitespaces may precede it
+  @Nullable
+  private static byte[] getRootTag(@NotNull byte[] head, @NotNull byte[] name) {
+    int start = 0;
+    for (; start < head.length - 1; ++start) {
+      if (head[start] == '<' && head[start + 1] != '?' && head[start + 1] != '!') break;
+    }
+    if (!matches(head, start, name, head.length) || !isTagName(head, head.length, start, name)) return null;
+
+    final int end = getTagEnd(head, head.length, start);
+    if (end < 0 || head[end - 2] == '/') return null;
+    final byte[] result = new byte[end - start];
+    System.arraycopy(head, start, result, 0, result.length);
+    return result;
+  }
+
+  /**
+   * @return offset after the element end tag or the empty element tag
+   */
+  private static long getElementEnd(@NotNull RandomAccessFile raf, long start, @NotNull byte[] endTag) throws IOException {
+    final byte[] tag = new byte[(int) Math.min(HEAD_LENGTH, raf.length() - start)];
+    raf.seek(start);
+    raf.readFully(tag);
+    final int tagEnd = getTagEnd(tag, tag.length, 0);
+    if (tagEnd > 0 && tag[tagEnd - 2] == '/') return start + tagEnd;
+
+    final Match end = findForward(raf, start, endTag);
+    return end == null ? -1 : end.myOffset + endTag.length;
+  }
+
+  // end of the tag started at the given position skipping '>' inside the attribute values
+  private static int getTagEnd(@NotNull byte[] data, int length, int start) {
+    byte quote = 0;
+    for (int i = start + 1; i < length; ++i) {
+      final byte b = data[i];
+      if (quote != 0) {
+        if (b == quote) quote = 0;
+      } else if (b == '"' || b == '\'') {
+        quote = b;
+      } else if (b == '>') {
+        return i + 1;
+      }
+    }
+    return -1;
+  }
+
+  @Nullable
+  private static Match findForward(@NotNull RandomAccessFile raf, long from, @NotNull byte[]... patterns) throws IOException {
+    final int overlap = getMaxLength(patterns);
+    final byte[] buffer = new byte[CHUNK_LENGTH + overlap];
+    final long length = raf.length();
+    for (long pos = from; pos < length; pos += CHUNK_LENGTH) {
+      final int read = (int) Math.min(buffer.length, length - pos);
+      raf.seek(pos);
+      raf.readFully(buffer, 0, read);
+
+      Match found = null;
+      for (byte[] pattern : patterns) {
+        int i = -1;
+        while ((i = indexOf(buffer, read, pattern, i + 1)) >= 0 && i < CHUNK_LENGTH) {
+          if (isTagName(buffer, read, i, pattern)) break;
+        }
+        if (i >= 0 && i < CHUNK_LENGTH && (found == null || pos + i < found.myOffset)) {
+          found = new Match(pattern, pos + i);
+        }
+      }
+      if (found != null) return found;
+    }
+    return null;
+  }
+
+  /**
+   * @return the last of the patterns found between the given offsets
+   */
+  @Nullable
+  private static Match findBackward(@NotNull RandomAccessFile raf, long to, long from, @NotNull byte[]... patterns) throws IOException {
+    final int overlap = getMaxLength(patterns);
+    final byte[] buffer = new byte[CHUNK_LENGTH + overlap];
+    for (long end = to; end > from; end -= CHUNK_LENGTH) {
+      final long pos = Math.max(from, end - CHUNK_LENGTH);
+      final int read = (int) Math.min(buffer.length, to - pos);
+      final int chunk = (int) (end - pos);
+      raf.seek(pos);
+      raf.readFully(buffer, 0, read);
+
+      Match found = null;
+      for (byte[] pattern : patterns) {
+        int i = chunk;
+        while ((i = lastIndexOf(buffer, read, pattern, i - 1)) >= 0) {
+          if (isTagName(buffer, read, i, pattern)) break;
+        }
+        if (i >= 0 && (found == null || pos + i > found.myOffset)) {
+          found = new Match(pattern, pos + i);
+        }
+      }
+      if (found != null) return found;
+    }
+    return null;
+  }
+
+  // pattern is either a complete end tag or a tag name which must be followed by the whitespace, '>' or '/'
+  private static boolean isTagName(@NotNull byte[] data, int length, int offset, @NotNull byte[] pattern) {
+    if (pattern[pattern.length - 1] == '>') return true;
+    final int next = offset + pattern.length;
+    if (next >= length) return false;
+    final byte b = data[next];
+    return b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '>' || b == '/';
+  }
+
+  private static int indexOf(@NotNull byte[] data, int length, @NotNull byte[] pattern, int start) {
+    for (int i = start; i <= length - pattern.length; ++i) {
+      if (matches(data, i, pattern)) return i;
+    }
+    return -1;
+  }
+
+  private static int lastIndexOf(@NotNull byte[] data, int length, @NotNull byte[] pattern, int start) {
+    for (int i = Math.min(start, length - pattern.length); i >= 0; --i) {
+      if (matches(data, i, pattern)) return i;
+    }
+    return -1;
+  }
+
+  private static boolean matches(@NotNull byte[] data, int offset, @NotNull byte[] pattern, int length) {
+    return offset + pattern.length <= length && matches(data, offset, pattern);
+  }
+
+  private static boolean matches(@NotNull byte[] data, int offset, @NotNull byte[] pattern) {
+    for (int j = 0; j < pattern.length; ++j) {
+      if (data[offset + j] != pattern[j]) return false;
+    }
+    return true;
+  }
+
+  private static int getMaxLength(@NotNull byte[][] patterns) {
+    int result = 0;
+    for (byte[] pattern : patterns) {
+      result = Math.max(result, pattern.length);
+    }
+    // one more byte to check the tag name end
+    return result + 1;
+  }
+
+  @NotNull
+  private static byte[] bytes(@NotNull String s) {
+    return s.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static final class Match {
+    @NotNull
+    private final byte[] myPattern;
+    private final long myOffset;
+
+    private Match(@NotNull byte[] pattern, long offset) {
+      myPattern = pattern;
+      myOffset = offset;
+    }
+  }
+
+  private static final class RegionInputStream extends InputStream {
+    @NotNull
+    private final RandomAccessFile myFile;
+    private long myRemaining;
+
+    private RegionInputStream(@NotNull File file, long start, long end) throws IOException {
+      myFile = new RandomAccessFile(file, "r");
+      myFile.seek(start);
+      myRemaining = end - start;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (myRemaining <= 0) return -1;
+      final int result = myFile.read();
+      if (result >= 0) --myRemaining;
+      return result;
+    }
+
+    @Override
+    public int read(@NotNull byte[] b, int off, int len) throws IOException {
+      if (myRemaining <= 0) return -1;
+      final int result = myFile.read(b, off, (int) Math.min(len, myRemaining));
+      if (result > 0) myRemaining -= result;
+      return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+      myFile.close();
+    }
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.parsers.mstest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Test names by the test ids.
+ *
+ * The ids are lower case GUIDs in all the TRX reports but the oldest ones, so they are kept as two longs in an open addressing table
+ * instead of 36 character strings. The names are split into the class name shared by the tests of the class and the rest.
+ * Other ids, including the GUIDs with upper case digits, are kept in a usual map, so the ids are matched exactly as they are written.
+ */
+class TestNameTable {
+  private static final int GUID_LENGTH = 36;
+  private static final int INITIAL_CAPACITY = 64;
+
+  private long[] myHigh;
+  private long[] myLow;
+  private int[] myClasses;
+  private String[] myMethods;
+  private int myGuidCount;
+
+  @NotNull
+  private final List<String> myClassNames = new ArrayList<String>();
+  @NotNull
+  private final Map<String, Integer> myClassIndexes = new HashMap<String, Integer>();
+  @NotNull
+  private final Map<String, String> myOtherIds = new HashMap<String, String>();
+
+  public TestNameTable() {
+    allocate(INITIAL_CAPACITY);
+  }
+
+  public void put(@NotNull String id, @NotNull String name) {
+    if (id.length() != GUID_LENGTH || !isGuid(id)) {
+      myOtherIds.put(id, name);
+      return;
+    }
+    if ((myGuidCount + 1) * 4 > myMethods.length * 3) {
+      rehash(myMethods.length * 2);
+    }
+    final int end = name.indexOf(" (");
+    final int dot = name.lastIndexOf('.', end < 0 ? name.length() - 1 : end - 1);
+    if (insert(parseHigh(id), parseLow(id), getClassIndex(name.substring(0, dot + 1)), name.substring(dot + 1))) {
+      ++myGuidCount;
+    }
+  }
+
+  @Nullable
+  public String get(@NotNull String id) {
+    if (id.length() != GUID_LENGTH || !isGuid(id)) {
+      return myOtherIds.get(id);
+    }
+    final long high = parseHigh(id);
+    final long low = parseLow(id);
+    final int mask = myMethods.length - 1;
+    for (int i = index(high, low, mask); myMethods[i] != null; i = (i + 1) & mask) {
+      if (myHigh[i] == high && myLow[i] == low) {
+        final String className = myClassNames.get(myClasses[i]);
+        return className.isEmpty() ? myMethods[i] : className + myMethods[i];
+      }
+    }
+    return null;
+  }
+
+  public int size() {
+    return myGuidCount + myOtherIds.size();
+  }
+
+  int getClassCount() {
+    return myClassNames.size();
+  }
+
+  public void clear() {
+    allocate(INITIAL_CAPACITY);
+    myGuidCount = 0;
+    myClassNames.clear();
+    myClassIndexes.clear();
+    myOtherIds.clear();
+  }
+
+  private int getClassIndex(@NotNull String className) {
+    final Integer existing = myClassIndexes.get(className);
+    if (existing != null) return existing;
+    final int index = myClassNames.size();
+    myClassNames.add(className);
+    myClassIndexes.put(className, index);
+    return index;
+  }
+
+  /**
+   * @return true if the id wasn't in the table
+   */
+  private boolean insert(long high, long low, int classIndex, @NotNull String method) {
+    final int mask = myMethods.length - 1;
+    int i = index(high, low, mask);
+    for (; myMethods[i] != null; i = (i + 1) & mask) {
+      if (myHigh[i] == high && myLow[i] == low) {
+        myClasses[i] = classIndex;
+        myMethods[i] = method;
+        return false;
+      }
+    }
+    myHigh[i] = high;
+    myLow[i] = low;
+    myClasses[i] = classIndex;
+    myMethods[i] = method;
+    return true;
+  }
+
+  private void rehash(int capacity) {
+    final long[] high = myHigh;
+    final long[] low = myLow;
+    final int[] classes = myClasses;
+    final String[] methods = myMethods;
+    allocate(capacity);
+    for (int i = 0; i < methods.length; ++i) {
+      if (methods[i] != null) {
+        insert(high[i], low[i], classes[i], methods[i]);
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    myHigh = new long[capacity];
+    myLow = new long[capacity];
+    myClasses = new int[capacity];
+    myMethods = new String[capacity];
+  }
+
+  private static int index(long high, long low, int mask) {
+    final long h = (high ^ low) * 0x9E3779B97F4A7C15L;
+    return (int) (h >>> 32) & mask;
+  }
+
+  // 8-4-4-4-12 lower case hex digits, only these are packed as they map back to the same string
+  private static boolean isGuid(@NotNull String id) {
+    for (int i = 0; i < GUID_LENGTH; ++i) {
+      final char c = id.charAt(i);
+      if (i == 8 || i == 13 || i == 18 || i == 23) {
+        if (c != '-') return false;
+      } else if (getHexDigit(c) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long parseHigh(@NotNull String id) {
+    return parseHex(id, 0, 8) << 32 | parseHex(id, 9, 13) << 16 | parseHex(id, 14, 18);
+  }
+
+  private static long parseLow(@NotNull String id) {
+    return parseHex(id, 19, 23) << 48 | parseHex(id, 24, GUID_LENGTH);
+  }
+
+  private static long parseHex(@NotNull String s, int from, int to) {
+    long result = 0;
+    for (int i = from; i < to; ++i) {
+      result = result << 4 | getHexDigit(s.charAt(i));
+    }
+    return result;
+  }
+
+  private static int getHexDigit(char c) {
+    if (c >= '0' && c <= '9') return c - '0';
+    if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+    return -1;
+  }
+}
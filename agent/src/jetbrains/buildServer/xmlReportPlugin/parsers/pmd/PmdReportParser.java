@@ -44,7 +44,7 @@ class PmdReportParser implements Parser {
 
   @Override
   public boolean parse(@NotNull final File file, @Nullable final ParsingResult prevResult) throws ParsingException {
-    if (!ParserUtils.isReportComplete(file, "pmd")) {
+    if (!ParserUtils.isReportClosed(file, "pmd")) {
       return false;
     }
 
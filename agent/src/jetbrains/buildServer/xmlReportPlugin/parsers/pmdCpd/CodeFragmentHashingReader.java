@@ -0,0 +1,87 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.parsers.pmdCpd;
+
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import jetbrains.buildServer.xmlReportPlugin.parsers.ElementTextFilteringReader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Passes the PMD CPD report through dropping the text of each codefragment element,
+ * so the duplicated code which is only needed for the hash is never collected into strings.
+ *
+ * The hash is computed over the characters as they come and is equal to text.trim().hashCode() of the element text
+ * the parser would give. The hashes are queued in the order of the elements and taken by the parser with {@link #nextHash()},
+ * the reader runs ahead of the parser, so the hash of an element is always queued when the parser gets to it.
+ */
+class CodeFragmentHashingReader extends ElementTextFilteringReader {
+  private static final String CODE_FRAGMENT = "codefragment";
+
+  // hash of the text from the first to the last non-whitespace character and of the whitespaces after it
+  private int myHash;
+  private int myPendingHash;
+  private int myPendingPower;
+  private boolean myStarted;
+
+  @NotNull
+  private final Deque<Integer> myHashes = new ArrayDeque<Integer>();
+
+  public CodeFragmentHashingReader(@NotNull Reader in) {
+    super(in, CODE_FRAGMENT);
+  }
+
+  /**
+   * @return hash of the next codefragment element text in the order of the elements
+   * @throws IllegalStateException if the parser asks for more hashes than the elements passed through this reader
+   */
+  public int nextHash() {
+    final Integer hash = myHashes.poll();
+    if (hash == null) throw new IllegalStateException("No codefragment element passed through the reader for the hash");
+    return hash;
+  }
+
+  @Override
+  protected void startText(@NotNull String element) {
+    myHash = 0;
+    myPendingHash = 0;
+    myPendingPower = 1;
+    myStarted = false;
+  }
+
+  // the same as String.hashCode() skipping the leading and the trailing characters String.trim() skips
+  @Override
+  protected void addText(char c) {
+    if (c <= ' ') {
+      if (!myStarted) return;
+      myPendingHash = 31 * myPendingHash + c;
+      myPendingPower *= 31;
+      return;
+    }
+    myHash = 31 * (myHash * myPendingPower + myPendingHash) + c;
+    myPendingHash = 0;
+    myPendingPower = 1;
+    myStarted = true;
+  }
+
+  @Override
+  protected void finishText(@NotNull StringBuilder out, @Nullable CharSequence raw) {
+    myHashes.add(myHash);
+  }
+}
@@ -16,13 +16,15 @@
 
 package jetbrains.buildServer.xmlReportPlugin.parsers.pmdCpd;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import jetbrains.buildServer.util.FileUtil;
 import jetbrains.buildServer.xmlReportPlugin.Parser;
 import jetbrains.buildServer.xmlReportPlugin.ParsingException;
 import jetbrains.buildServer.xmlReportPlugin.ParsingResult;
 import jetbrains.buildServer.xmlReportPlugin.duplicates.DuplicationReporter;
 import jetbrains.buildServer.xmlReportPlugin.duplicates.DuplicationResult;
+import jetbrains.buildServer.xmlReportPlugin.parsers.ByteOrderMarkSkippingReader;
+import jetbrains.buildServer.xmlReportPlugin.parsers.CheckpointingInputStream;
 import jetbrains.buildServer.xmlReportPlugin.utils.ParserUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -44,10 +46,17 @@ class PmdCpdReportParser implements Parser {
 
   @Override
   public boolean parse(@NotNull File file, @Nullable ParsingResult prevResult) throws ParsingException {
-    if (!ParserUtils.isReportComplete(file, "pmd-cpd")) {
+    if (!ParserUtils.isReportClosed(file, "pmd-cpd")) {
       return false;
     }
 
+    final CodeFragmentHashingReader reader;
+    try {
+      reader = createReader(file);
+    } catch (IOException e) {
+      throw new ParsingException(e);
+    }
+
     try {
       new PmdCpdXmlReportParser(new PmdCpdXmlReportParser.Callback() {
         public void startDuplicates() {
@@ -66,13 +75,26 @@ class PmdCpdReportParser implements Parser {
         public void error(@NotNull final String message) {
           myDuplicationReporter.error(message);
         }
-      }, myCheckoutDirectory.getAbsolutePath()).parse(file);
+      }, myCheckoutDirectory.getAbsolutePath(), reader).parse(reader);
     } catch (IOException e) {
       throw new ParsingException(e);
+    } finally {
+      FileUtil.close(reader);
     }
     return true;
   }
 
+  @NotNull
+  private static CodeFragmentHashingReader createReader(@NotNull File file) throws IOException {
+    final InputStream in = new BufferedInputStream(new FileInputStream(file));
+    try {
+      return new CodeFragmentHashingReader(new ByteOrderMarkSkippingReader(new InputStreamReader(in, CheckpointingInputStream.detectCharset(in))));
+    } catch (IOException e) {
+      FileUtil.close(in);
+      throw e;
+    }
+  }
+
   public ParsingResult getParsingResult() {
     return new PmdCpdParsingResult();
   }
@@ -33,10 +33,17 @@ class PmdCpdXmlReportParser extends BaseXmlXppAbstractParser {
   @NotNull
   private final Callback myCallback;
   private final String myRootPath;
+  @Nullable
+  private final CodeFragmentHashingReader myHashingReader;
 
-  public PmdCpdXmlReportParser(@NotNull Callback callback, @NotNull String rootPath) {
+  /**
+   * @param hashingReader the reader the report is parsed from, it gives the hashes of the codefragment elements instead of their texts,
+   *                      if null the hashes are computed from the texts
+   */
+  public PmdCpdXmlReportParser(@NotNull Callback callback, @NotNull String rootPath, @Nullable CodeFragmentHashingReader hashingReader) {
     myCallback = callback;
     myRootPath = rootPath;
+    myHashingReader = hashingReader;
   }
 
   @Override
@@ -55,7 +62,7 @@ class PmdCpdXmlReportParser extends BaseXmlXppAbstractParser {
                 return reader.visitChildren(
                   elementsPath(new TextHandler() {
                     public void setText(@NotNull String s) {
-                      duplicationResult.setHash(s.trim().hashCode());
+                      duplicationResult.setHash(myHashingReader != null ? myHashingReader.nextHash() : s.trim().hashCode());
                     }
                   }, "codefragment"),
 
@@ -20,11 +20,14 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.Deque;
-import jetbrains.buildServer.util.StringUtil;
+import jetbrains.buildServer.util.FileUtil;
 import jetbrains.buildServer.xmlReportPlugin.Parser;
 import jetbrains.buildServer.xmlReportPlugin.ParsingException;
 import jetbrains.buildServer.xmlReportPlugin.ParsingResult;
+import jetbrains.buildServer.xmlReportPlugin.parsers.CheckpointingInputStream;
 import jetbrains.buildServer.xmlReportPlugin.parsers.TestMessages;
+import jetbrains.buildServer.xmlReportPlugin.parsers.TestNameBuilder;
+import jetbrains.buildServer.xmlReportPlugin.parsers.XmlCheckpoint;
 import jetbrains.buildServer.xmlReportPlugin.tests.DurationParser;
 import jetbrains.buildServer.xmlReportPlugin.tests.TestParsingResult;
 import jetbrains.buildServer.xmlReportPlugin.tests.TestReporter;
@@ -40,11 +43,15 @@ public class TestNGReportParser implements Parser {
   private final DurationParser myDurationParser;
   @NotNull
   private final Deque<String> mySuites = new ArrayDeque<String>();
+  @NotNull
+  private final TestNameBuilder myNameBuilder = new TestNameBuilder();
   private int myTestsToSkip;
   private int myLoggedTests;
   private int myLoggedSuites;
   @Nullable
   private ParsingException myParsingException;
+  @Nullable
+  private CheckpointingInputStream myInput;
 
   public TestNGReportParser(@NotNull final TestReporter testReporter, @NotNull final DurationParser durationParser) {
     myTestReporter = testReporter;
@@ -54,11 +61,18 @@ public class TestNGReportParser implements Parser {
 
   @Override
   public boolean parse(@NotNull final File file, @Nullable final ParsingResult prevResult) throws ParsingException {
+    XmlCheckpoint checkpoint = null;
     if (prevResult != null) {
       myTestsToSkip = ((TestParsingResult)prevResult).getTests();
+      checkpoint = ((TestParsingResult)prevResult).getCheckpoint();
     }
 
     try {
+      myInput = CheckpointingInputStream.open(file, "test-method", "class", checkpoint);
+      final XmlCheckpoint start = myInput.getCheckpoint();
+      if (start != null) {
+        myLoggedTests = start.getIndex();
+      }
       new TestNGXmlReportParser(new TestNGXmlReportParser.Callback() {
 
         @Override
@@ -99,15 +113,7 @@ public class TestNGReportParser implements Parser {
           try {
             if (testSkipped()) return;
             if (testData.isConfig() && testData.getStatus() != TestData.Status.FAIL) return;
-            String methodNameWithClass = (testData.getClassName() == null || testData.getMethodName() != null && testData.getMethodName().startsWith(testData.getClassName())
-                                          ? ""
-                                          : testData.getClassName() + ".") + testData.getMethodName();
-            String methodParams = "";
-            if (testData.getParams().size() > 0) {
-              methodParams = "(" + StringUtil.join(testData.getParams(), ", ") + ")";
-            }
-
-            final String testName = methodNameWithClass + methodParams;
+            final String testName = myNameBuilder.getName(testData.getClassName(), testData.getMethodName(), testData.getParams());
             myTestReporter.openTest(testName);
 
             switch (testData.getStatus()) {
@@ -129,6 +135,7 @@ public class TestNGReportParser implements Parser {
             myTestReporter.closeTest(testData.getDuration());
           } finally {
             ++myLoggedTests;
+            if (myInput != null) myInput.confirm(myLoggedTests);
           }
         }
 
@@ -136,7 +143,7 @@ public class TestNGReportParser implements Parser {
         public void unexpectedFormat(@NotNull final String msg) {
           myTestReporter.error(TestMessages.getFileExpectedFormatMessage(file, msg, "Ant TestNG Task"));
         }
-      }, myDurationParser).parse(file);
+      }, myDurationParser).parse(myInput.createReader());
       return true;
     } catch (IOException e) {
       myParsingException = new ParsingException(e);
@@ -147,6 +154,8 @@ public class TestNGReportParser implements Parser {
       }
 
       LOG.debug(TestMessages.getCouldNotCompletelyParseMessage(file, e, myLoggedTests));
+    } finally {
+      FileUtil.close(myInput);
     }
     return false;
   }
@@ -154,7 +163,8 @@ public class TestNGReportParser implements Parser {
   @Nullable
   @Override
   public ParsingResult getParsingResult() {
-    return new TestParsingResult(myLoggedSuites, (myLoggedTests > myTestsToSkip) ? myLoggedTests : myTestsToSkip, myParsingException);
+    return new TestParsingResult(myLoggedSuites, (myLoggedTests > myTestsToSkip) ? myLoggedTests : myTestsToSkip, myParsingException,
+                                 myInput == null ? null : myInput.getCheckpoint());
   }
 
   private boolean testSkipped() {
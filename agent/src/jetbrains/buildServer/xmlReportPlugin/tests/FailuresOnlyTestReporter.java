@@ -0,0 +1,199 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.tests;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import jetbrains.buildServer.util.StringUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reports only the failed and the ignored tests, the passed ones are counted instead.
+ *
+ * The messages of a test are held back until it fails or is ignored, the suites are opened only when they get such a test,
+ * the number and the total duration of the passed tests are logged when their suite is closed and added to the build statistics on {@link #flush()}.
+ */
+public class FailuresOnlyTestReporter implements TestReporter {
+  @NotNull
+  private final TestReporter myReporter;
+  @NotNull
+  private final PassedTestStatistics myStatistics;
+
+  @NotNull
+  private final Deque<Suite> mySuites = new ArrayDeque<Suite>();
+  @Nullable
+  private String myTest;
+  private boolean myTestReported;
+  // output of the test not reported yet
+  @NotNull
+  private final List<Output> myOutput = new ArrayList<Output>();
+
+  private int myPassedTests;
+  private long myPassedDuration;
+
+  public FailuresOnlyTestReporter(@NotNull TestReporter reporter, @NotNull PassedTestStatistics statistics) {
+    myReporter = reporter;
+    myStatistics = statistics;
+  }
+
+  public void openTestSuite(@NotNull String name) {
+    mySuites.push(new Suite(name));
+  }
+
+  public void openTest(@NotNull String name) {
+    myTest = name;
+    myTestReported = false;
+    myOutput.clear();
+  }
+
+  public void testStdOutput(@NotNull String text) {
+    if (myTestReported) {
+      myReporter.testStdOutput(text);
+    } else {
+      myOutput.add(new Output(text, false));
+    }
+  }
+
+  public void testErrOutput(@NotNull String text) {
+    if (myTestReported) {
+      myReporter.testErrOutput(text);
+    } else {
+      myOutput.add(new Output(text, true));
+    }
+  }
+
+  public void testFail(@Nullable String error, @Nullable String stacktrace) {
+    reportTest();
+    myReporter.testFail(error, stacktrace);
+  }
+
+  public void testIgnored(@NotNull String message) {
+    reportTest();
+    myReporter.testIgnored(message);
+  }
+
+  public void closeTest(long duration) {
+    if (myTestReported) {
+      myReporter.closeTest(duration);
+    } else {
+      ++myPassedTests;
+      myPassedDuration += duration;
+      final Suite suite = mySuites.peek();
+      if (suite != null) {
+        ++suite.myPassedTests;
+        suite.myPassedDuration += duration;
+      }
+    }
+    myTest = null;
+    myTestReported = false;
+    myOutput.clear();
+  }
+
+  public void closeTestSuite() {
+    final Suite suite = mySuites.poll();
+    if (suite == null) {
+      myReporter.closeTestSuite();
+      return;
+    }
+    if (suite.myPassedTests > 0) {
+      myReporter.info(suite.myName + ": " + suite.myPassedTests + " passed " + StringUtil.pluralize("test", suite.myPassedTests) +
+                      " not reported, total duration " + suite.myPassedDuration + " ms");
+    }
+    if (suite.myOpened) {
+      myReporter.closeTestSuite();
+    }
+  }
+
+  public void info(@NotNull String message) {
+    myReporter.info(message);
+  }
+
+  public void warning(@NotNull String message) {
+    myReporter.warning(message);
+  }
+
+  public void error(@NotNull String message) {
+    myReporter.error(message);
+  }
+
+  public void failure(@NotNull String message) {
+    myReporter.failure(message);
+  }
+
+  /**
+   * Adds the passed tests counted since the previous call to the build statistics
+   */
+  public void flush() {
+    if (myPassedTests == 0) return;
+    myStatistics.addPassedTests(myPassedTests, myPassedDuration);
+    myPassedTests = 0;
+    myPassedDuration = 0;
+  }
+
+  // opens the suites and the test if there is one and passes the output held back
+  private void reportTest() {
+    if (myTestReported) return;
+
+    final List<Suite> suites = new ArrayList<Suite>();
+    for (Suite suite : mySuites) {
+      if (suite.myOpened) break;
+      suites.add(suite);
+    }
+    for (int i = suites.size() - 1; i >= 0; --i) {
+      myReporter.openTestSuite(suites.get(i).myName);
+      suites.get(i).myOpened = true;
+    }
+
+    if (myTest == null) return;
+    myReporter.openTest(myTest);
+    myTestReported = true;
+    for (Output output : myOutput) {
+      if (output.myErr) {
+        myReporter.testErrOutput(output.myText);
+      } else {
+        myReporter.testStdOutput(output.myText);
+      }
+    }
+    myOutput.clear();
+  }
+
+  private static final class Suite {
+    @NotNull
+    private final String myName;
+    private boolean myOpened;
+    private int myPassedTests;
+    private long myPassedDuration;
+
+    private Suite(@NotNull String name) {
+      myName = name;
+    }
+  }
+
+  private static final class Output {
+    @NotNull
+    private final String myText;
+    private final boolean myErr;
+
+    private Output(@NotNull String text, boolean err) {
+      myText = text;
+      myErr = err;
+    }
+  }
+}
@@ -16,6 +16,7 @@
 
 package jetbrains.buildServer.xmlReportPlugin.tests;
 
+import jetbrains.buildServer.xmlReportPlugin.utils.DurationUtils;
 import jetbrains.buildServer.xmlReportPlugin.utils.ParserUtils;
 import org.jetbrains.annotations.Nullable;
 
@@ -28,6 +29,12 @@ public class MillisecondDurationParser implements DurationParser {
   public static final org.apache.log4j.Logger LOG = org.apache.log4j.Logger.getLogger(MillisecondDurationParser.class);
 
   public long parseTestDuration(@Nullable String duration) {
+    if (duration != null) {
+      final long millis = DurationUtils.parseLong(duration, 0, duration.length());
+      if (millis != DurationUtils.UNPARSED) {
+        return millis;
+      }
+    }
     if (!ParserUtils.isNumber(duration)) {
       LOG.warn("Unable to parse execution time string " + duration);
       return 0L;
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.tests;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import jetbrains.buildServer.agent.BuildProgressLogger;
+import jetbrains.buildServer.messages.serviceMessages.ServiceMessage;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Number and total duration of the passed tests not reported during the build, see {@link FailuresOnlyTestReporter}.
+ *
+ * The totals are logged as build statistic values each time they change, the last logged value is the one the build gets.
+ * Thread-safe, the reports are parsed in parallel.
+ */
+public class PassedTestStatistics {
+  public static final String PASSED_TEST_COUNT_KEY = "xmlReportParsing.passedTestCount";
+  public static final String PASSED_TEST_DURATION_KEY = "xmlReportParsing.passedTestDuration";
+
+  @NotNull
+  private final BuildProgressLogger myLogger;
+  private long myPassedTests;
+  private long myPassedDuration;
+
+  public PassedTestStatistics(@NotNull BuildProgressLogger logger) {
+    myLogger = logger;
+  }
+
+  /**
+   * @param duration total duration of the tests in milliseconds
+   */
+  public synchronized void addPassedTests(int tests, long duration) {
+    myPassedTests += tests;
+    myPassedDuration += duration;
+    logStatisticValue(PASSED_TEST_COUNT_KEY, myPassedTests);
+    logStatisticValue(PASSED_TEST_DURATION_KEY, myPassedDuration);
+  }
+
+  public synchronized long getPassedTests() {
+    return myPassedTests;
+  }
+
+  public synchronized long getPassedDuration() {
+    return myPassedDuration;
+  }
+
+  private void logStatisticValue(@NotNull String key, long value) {
+    final Map<String, String> attributes = new LinkedHashMap<String, String>();
+    attributes.put("key", key);
+    attributes.put("value", String.valueOf(value));
+    myLogger.message(ServiceMessage.asString("buildStatisticValue", attributes));
+  }
+}
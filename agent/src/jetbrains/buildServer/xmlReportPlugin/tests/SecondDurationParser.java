@@ -16,6 +16,7 @@
 
 package jetbrains.buildServer.xmlReportPlugin.tests;
 
+import jetbrains.buildServer.xmlReportPlugin.utils.DurationUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -36,6 +37,10 @@ public class SecondDurationParser implements DurationParser {
     if (duration == null || "".equals(duration)) {
       return 0L;
     }
+    final long millis = DurationUtils.parseSeconds(duration, 0, duration.length());
+    if (millis != DurationUtils.UNPARSED) {
+      return millis;
+    }
     try {
       return Math.round(Double.parseDouble(getUniformTimeStr(duration)) * 1000.0);
     } catch (NumberFormatException e) {
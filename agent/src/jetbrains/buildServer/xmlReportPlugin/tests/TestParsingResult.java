@@ -21,6 +21,7 @@ import jetbrains.buildServer.util.StringUtil;
 import jetbrains.buildServer.xmlReportPlugin.ParseParameters;
 import jetbrains.buildServer.xmlReportPlugin.ParsingResult;
 import jetbrains.buildServer.xmlReportPlugin.ProblemParsingResult;
+import jetbrains.buildServer.xmlReportPlugin.parsers.XmlCheckpoint;
 import jetbrains.buildServer.xmlReportPlugin.utils.LoggingUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -33,15 +34,22 @@ import org.jetbrains.annotations.Nullable;
 public class TestParsingResult extends ProblemParsingResult {
   private int mySuites;
   private int myTests;
+  @Nullable
+  private final XmlCheckpoint myCheckpoint;
 
   public TestParsingResult(int suites, int tests) {
     this(suites, tests, null);
   }
 
   public TestParsingResult(int suites, int tests, @Nullable Throwable problem) {
+    this(suites, tests, problem, null);
+  }
+
+  public TestParsingResult(int suites, int tests, @Nullable Throwable problem, @Nullable XmlCheckpoint checkpoint) {
     super(problem);
     mySuites = suites;
     myTests = tests;
+    myCheckpoint = checkpoint;
   }
 
   public int getSuites() {
@@ -52,6 +60,14 @@ public class TestParsingResult extends ProblemParsingResult {
     return myTests;
   }
 
+  /**
+   * @return position after the last completely processed test to resume parsing of the report from
+   */
+  @Nullable
+  public XmlCheckpoint getCheckpoint() {
+    return myCheckpoint;
+  }
+
   public void accumulate(@NotNull ParsingResult parsingResult) {
     final TestParsingResult testParsingResult = (TestParsingResult) parsingResult;
     mySuites += testParsingResult.getSuites();
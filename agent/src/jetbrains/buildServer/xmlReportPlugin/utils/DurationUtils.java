@@ -0,0 +1,233 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Parses durations and timestamps from character ranges without creating intermediate strings.
+ *
+ * Only the well-formed values found in the reports are handled here, the methods return {@link #UNPARSED}
+ * for anything else and the duration parsers fall back to their general (and slower) parsing then.
+ * Decimal values are computed exactly as {@link Double#parseDouble(String)} does: the digits are collected into a long
+ * and divided by a power of ten, which is correctly rounded while both of them are exactly representable as doubles.
+ */
+public final class DurationUtils {
+  public static final long UNPARSED = Long.MIN_VALUE;
+
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+    1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  private static final char MARK = '\'';
+  private static final char NBSP = '\u00A0';
+
+  private static final long MILLIS_IN_SECOND = 1000L;
+  private static final long SECONDS_IN_DAY = 24 * 60 * 60;
+
+  private DurationUtils() {
+  }
+
+  /**
+   * Seconds with the optional fraction like "1.5", "1,5", "1,234.5", "1.234,5" or "1'234.5":
+   * the last of '.' and ',' is the decimal separator, the other one separates the groups, apostrophes and non-breaking spaces are skipped.
+   *
+   * @return milliseconds rounded the same way as Math.round(seconds * 1000.0) or {@link #UNPARSED}
+   */
+  public static long parseSeconds(@NotNull CharSequence s, int start, int end) {
+    char decimal = '.';
+    for (int i = end - 1; i >= start; --i) {
+      final char c = s.charAt(i);
+      if (c == '.' || c == ',') {
+        decimal = c;
+        break;
+      }
+    }
+    final double seconds = parseDecimal(s, start, end, decimal, decimal == '.' ? ',' : '.', true);
+    return Double.isNaN(seconds) ? UNPARSED : Math.round(seconds * 1000.0);
+  }
+
+  /**
+   * Integer like "1234" or "-1234".
+   *
+   * @return the value or {@link #UNPARSED} if it isn't an ascii integer or doesn't fit into long
+   */
+  public static long parseLong(@NotNull CharSequence s, int start, int end) {
+    int i = start;
+    boolean negative = false;
+    if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+      negative = s.charAt(i) == '-';
+      ++i;
+    }
+    if (i == end) return UNPARSED;
+    // accumulate negative values as they have the larger range
+    long result = 0;
+    for (; i < end; ++i) {
+      final int digit = s.charAt(i) - '0';
+      if (digit < 0 || digit > 9 || result < (Long.MIN_VALUE + digit) / 10) return UNPARSED;
+      result = result * 10 - digit;
+    }
+    if (negative) return result == Long.MIN_VALUE ? UNPARSED : result;
+    return result == Long.MIN_VALUE ? UNPARSED : -result;
+  }
+
+  /**
+   * .NET time span like "01:02:03.0074699" as written into the TRX duration attribute, any part may have a fraction.
+   *
+   * @return milliseconds with the seconds rounded up or {@link #UNPARSED}
+   */
+  public static long parseTimeSpan(@NotNull CharSequence s, int start, int end) {
+    final int first = indexOf(s, ':', start, end);
+    if (first < 0) return UNPARSED;
+    final int second = indexOf(s, ':', first + 1, end);
+    if (second < 0 || indexOf(s, ':', second + 1, end) >= 0) return UNPARSED;
+
+    final double hours = parseDecimal(s, start, first, '.', (char)0, false);
+    final double minutes = parseDecimal(s, first + 1, second, '.', (char)0, false);
+    final double seconds = parseDecimal(s, second + 1, end, '.', (char)0, false);
+    if (Double.isNaN(hours) || Double.isNaN(minutes) || Double.isNaN(seconds)) return UNPARSED;
+
+    return (long)(Math.ceil(1000 * seconds) + 1000 * (60 * (minutes + 60 * hours)));
+  }
+
+  /**
+   * ISO-8601 timestamp like "2010-02-12T14:44:45.9393792+01:00" with the optional fraction and the optional "Z", "+hh:mm" or "+hhmm" offset,
+   * a timestamp without the offset is treated as UTC.
+   *
+   * @return milliseconds since the epoch with the fraction truncated to milliseconds or {@link #UNPARSED}
+   */
+  public static long parseTimestamp(@NotNull CharSequence s, int start, int end) {
+    if (end - start < 19 ||
+        s.charAt(start + 4) != '-' || s.charAt(start + 7) != '-' || s.charAt(start + 10) != 'T' ||
+        s.charAt(start + 13) != ':' || s.charAt(start + 16) != ':') {
+      return UNPARSED;
+    }
+    final int year = parseDigits(s, start, start + 4);
+    final int month = parseDigits(s, start + 5, start + 7);
+    final int day = parseDigits(s, start + 8, start + 10);
+    final int hour = parseDigits(s, start + 11, start + 13);
+    final int minute = parseDigits(s, start + 14, start + 16);
+    final int second = parseDigits(s, start + 17, start + 19);
+    if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 ||
+        hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 60) {
+      return UNPARSED;
+    }
+
+    int i = start + 19;
+    int millis = 0;
+    if (i < end && s.charAt(i) == '.') {
+      int digits = 0;
+      for (++i; i < end && isDigit(s.charAt(i)); ++i, ++digits) {
+        if (digits < 3) millis = millis * 10 + s.charAt(i) - '0';
+      }
+      if (digits == 0) return UNPARSED;
+      for (; digits < 3; ++digits) millis *= 10;
+    }
+
+    int offset = 0;
+    if (i < end && s.charAt(i) == 'Z') {
+      ++i;
+    } else if (i < end && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+      final int sign = s.charAt(i) == '-' ? -1 : 1;
+      final int colon = i + 3 < end && s.charAt(i + 3) == ':' ? 1 : 0;
+      if (end - i != 5 + colon) return UNPARSED;
+      final int offsetHours = parseDigits(s, i + 1, i + 3);
+      final int offsetMinutes = parseDigits(s, i + 3 + colon, end);
+      if (offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59) return UNPARSED;
+      offset = sign * (offsetHours * 60 + offsetMinutes) * 60;
+      i = end;
+    }
+    if (i != end) return UNPARSED;
+
+    final long seconds = getEpochDay(year, month, day) * SECONDS_IN_DAY + hour * 3600 + minute * 60 + second - offset;
+    return seconds * MILLIS_IN_SECOND + millis;
+  }
+
+  /**
+   * [whitespaces][sign]digits[decimal separator digits][whitespaces] as accepted by Double.parseDouble,
+   * the grouping separators and with skipMarks also the apostrophes and non-breaking spaces are allowed between the digits and skipped.
+   *
+   * @return the value or NaN
+   */
+  private static double parseDecimal(@NotNull CharSequence s, int start, int end, char decimal, char grouping, boolean skipMarks) {
+    while (start < end && s.charAt(start) <= ' ') ++start;
+    while (end > start && s.charAt(end - 1) <= ' ') --end;
+
+    int i = start;
+    boolean negative = false;
+    if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+      negative = s.charAt(i) == '-';
+      ++i;
+    }
+
+    long mantissa = 0;
+    int scale = 0;
+    int digits = 0;
+    boolean fraction = false;
+    for (; i < end; ++i) {
+      final char c = s.charAt(i);
+      if (isDigit(c)) {
+        if (mantissa >= MAX_EXACT_MANTISSA / 10) return Double.NaN;
+        mantissa = mantissa * 10 + c - '0';
+        ++digits;
+        if (fraction) ++scale;
+      } else if (c == decimal && !fraction) {
+        fraction = true;
+      } else if (!(c == grouping && !fraction) && !(skipMarks && (c == MARK || c == NBSP))) {
+        return Double.NaN;
+      }
+    }
+    if (digits == 0 || scale >= POWERS_OF_TEN.length) return Double.NaN;
+
+    final double result = mantissa / POWERS_OF_TEN[scale];
+    return negative ? -result : result;
+  }
+
+  // non-negative value of the ascii digits or -1
+  private static int parseDigits(@NotNull CharSequence s, int start, int end) {
+    int result = 0;
+    for (int i = start; i < end; ++i) {
+      final char c = s.charAt(i);
+      if (!isDigit(c)) return -1;
+      result = result * 10 + c - '0';
+    }
+    return result;
+  }
+
+  // days since 1970-01-01 in the proleptic Gregorian calendar
+  private static long getEpochDay(int year, int month, int day) {
+    final long y = month <= 2 ? year - 1 : year;
+    final long era = Math.floorDiv(y, 400);
+    final long yearOfEra = y - era * 400;
+    final long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+    final long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097 + dayOfEra - 719468;
+  }
+
+  private static int indexOf(@NotNull CharSequence s, char c, int start, int end) {
+    for (int i = start; i < end; ++i) {
+      if (s.charAt(i) == c) return i;
+    }
+    return -1;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+}
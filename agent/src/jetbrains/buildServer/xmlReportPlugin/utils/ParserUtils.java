@@ -17,8 +17,9 @@
 package jetbrains.buildServer.xmlReportPlugin.utils;
 
 import java.io.File;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
 import jetbrains.buildServer.util.StringUtil;
 import jetbrains.buildServer.util.XmlUtil;
 import org.jetbrains.annotations.Contract;
@@ -34,11 +35,9 @@ import org.xml.sax.helpers.DefaultHandler;
  */
 public class ParserUtils {
 
-  private static final Pattern HTML_SPACE = Pattern.compile("&nbsp;", Pattern.LITERAL);
-  private static final Pattern CARRIAGE_RETURN = Pattern.compile("\r", Pattern.LITERAL);
-  private static final Pattern NEW_LINE = Pattern.compile("\n", Pattern.LITERAL);
-  private static final Pattern SPACES = Pattern.compile("\\s+");
-  private static final Pattern HTML_TAGS = Pattern.compile("<[a-z]>|</[a-z]>");
+  private static final String HTML_SPACE = "&nbsp;";
+
+  private static final int CLOSED_CHECK_LENGTH = 8 * 1024;
 
   @NotNull
   public static XMLReader createXmlReader(@NotNull ContentHandler contentHandler,
@@ -51,34 +50,56 @@ public class ParserUtils {
     return xmlReader;
   }
 
+  /**
+   * Replaces {@code &nbsp;} with spaces, joins the lines, collapses the whitespaces and removes one-letter html tags
+   */
   @NotNull
   public static String formatText(@NotNull String s) {
-    s = replaceHtmlSpace(s);
-    s = removeCarriageReturn(s);
-    s = replaceNewLine(s);
-    s = trimSpaces(s);
-    s = removeHtmlTags(s);
-    return s.trim();
-  }
-
-  private static String replaceHtmlSpace(@NotNull String s) {
-    return HTML_SPACE.matcher(s).replaceAll(Matcher.quoteReplacement(" "));
-  }
-
-  private static String removeCarriageReturn(@NotNull String s) {
-    return CARRIAGE_RETURN.matcher(s).replaceAll(Matcher.quoteReplacement(""));
-  }
-
-  private static String replaceNewLine(@NotNull String s) {
-    return NEW_LINE.matcher(s).replaceAll(Matcher.quoteReplacement(" "));
+    final int length = s.length();
+    final StringBuilder result = new StringBuilder(length);
+    boolean space = false;
+    for (int i = 0; i < length; ++i) {
+      char c = s.charAt(i);
+      if (c == '&' && s.startsWith(HTML_SPACE, i)) {
+        c = ' ';
+        i += HTML_SPACE.length() - 1;
+      } else if (c == '\r') {
+        continue;
+      }
+      if (isSpace(c)) {
+        if (!space) result.append(' ');
+        space = true;
+      } else {
+        result.append(c);
+        space = false;
+      }
+    }
+    // tags are removed after the whitespaces are collapsed, so the spaces around them are kept
+    int to = 0;
+    for (int from = 0; from < result.length(); ++from) {
+      final int tag = getHtmlTagLength(result, from);
+      if (tag > 0) {
+        from += tag - 1;
+      } else {
+        result.setCharAt(to++, result.charAt(from));
+      }
+    }
+    result.setLength(to);
+    return result.toString().trim();
   }
 
-  private static String trimSpaces(@NotNull String s) {
-    return SPACES.matcher(s).replaceAll(" ");
+  // same as \s regex class
+  private static boolean isSpace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
   }
 
-  private static String removeHtmlTags(@NotNull String s) {
-    return HTML_TAGS.matcher(s).replaceAll("");
+  // <x> or </x> where x is a lowercase letter
+  private static int getHtmlTagLength(@NotNull CharSequence s, int i) {
+    if (s.charAt(i) != '<') return 0;
+    final int name = i + 1 < s.length() && s.charAt(i + 1) == '/' ? i + 2 : i + 1;
+    if (name + 1 >= s.length()) return 0;
+    final char c = s.charAt(name);
+    return c >= 'a' && c <= 'z' && s.charAt(name + 1) == '>' ? name + 2 - i : 0;
   }
 
   public static boolean isReportComplete(@NotNull final File report, @Nullable String rootTag) {
@@ -95,6 +116,86 @@ public class ParserUtils {
     }
   }
 
+  /**
+   * Checks that the report is completely written by reading only its beginning and its end:
+   * the report must start with the given root element and end with its closing tag.
+   * Unlike {@link #isReportComplete(File, String)} doesn't check the whole report is well-formed, this is left to the parser,
+   * so for a malformed report with the closed root element the parser reports what it has read before the malformed part.
+   *
+   * The reports declaring DTD and the ones which can't be checked this way are checked with {@link #isReportComplete(File, String)}.
+   */
+  public static boolean isReportClosed(@NotNull final File report, @NotNull String rootTag) {
+    final Boolean closed = checkRootClosed(report, rootTag);
+    return closed == null ? isReportComplete(report, rootTag) : closed;
+  }
+
+  @Nullable
+  private static Boolean checkRootClosed(@NotNull File report, @NotNull String rootTag) {
+    final String head;
+    final String tail;
+    try {
+      final RandomAccessFile raf = new RandomAccessFile(report, "r");
+      try {
+        final long length = raf.length();
+        head = read(raf, 0, (int) Math.min(length, CLOSED_CHECK_LENGTH));
+        tail = read(raf, Math.max(0, length - CLOSED_CHECK_LENGTH), (int) Math.min(length, CLOSED_CHECK_LENGTH));
+      } finally {
+        raf.close();
+      }
+    } catch (IOException e) {
+      return null;
+    }
+
+    // not ASCII-compatible encoding
+    if (head.indexOf('\0') >= 0) return null;
+
+    final int root = indexOfStartTag(head, rootTag);
+    if (root < 0 || head.lastIndexOf("<!DOCTYPE", root) >= 0) return null;
+
+    int end = tail.length();
+    while (true) {
+      while (end > 0 && Character.isWhitespace(tail.charAt(end - 1))) --end;
+      if (tail.startsWith("-->", end - 3)) {
+        end = tail.lastIndexOf("<!--", end - 3);
+      } else if (tail.startsWith("?>", end - 2)) {
+        end = tail.lastIndexOf("<?", end - 2);
+      } else {
+        break;
+      }
+      if (end < 0) return null;
+    }
+
+    if (end == 0 || tail.charAt(end - 1) != '>') return false;
+
+    final int start = tail.lastIndexOf('<', end - 1);
+    if (start < 0) return null;
+
+    final String tag = tail.substring(start, end);
+    if (tag.startsWith("</")) {
+      final String name = tag.substring(2, tag.length() - 1).trim();
+      return rootTag.equals(name.substring(name.indexOf(':') + 1));
+    }
+    // the empty root element
+    return tag.endsWith("/>") && indexOfStartTag(tag, rootTag) == 0;
+  }
+
+  @NotNull
+  private static String read(@NotNull RandomAccessFile raf, long offset, int length) throws IOException {
+    final byte[] bytes = new byte[length];
+    raf.seek(offset);
+    raf.readFully(bytes);
+    return new String(bytes, StandardCharsets.ISO_8859_1);
+  }
+
+  private static int indexOfStartTag(@NotNull String text, @NotNull String name) {
+    final String start = "<" + name;
+    for (int i = text.indexOf(start); i >= 0; i = text.indexOf(start, i + 1)) {
+      final int next = i + start.length();
+      if (next < text.length() && (Character.isWhitespace(text.charAt(next)) || text.charAt(next) == '>' || text.charAt(next) == '/')) return i;
+    }
+    return -1;
+  }
+
   @Contract("null -> false")
   public static boolean isNumber(@Nullable final String str) {
     if(StringUtil.isEmptyOrSpaces(str)) return false;
@@ -39,6 +39,14 @@ public interface XmlReportPluginConstants {
   static final String LOG_AS_INTERNAL = "xmlReportParsing.logAsInternal";
   static final String LOG_INTERNAL_SYSTEM_ERROR = "xmlReportParsing.logInternalSystemError";
   static final String REPARSE_UPDATED = "xmlReportParsing.reparse.updated";
+  static final String WATCH_FILE_SYSTEM = "xmlReportParsing.watchFileSystem";
+  static final String MONITOR_MIN_INTERVAL = "xmlReportParsing.monitor.minInterval";
+  static final String MONITOR_MAX_INTERVAL = "xmlReportParsing.monitor.maxInterval";
+  static final String PARSE_THREADS = "xmlReportParsing.parse.threads";
+  static final String MAX_OUTPUT_LENGTH = "xmlReportParsing.output.maxLength";
+  static final String MAX_REPORT_OUTPUT_LENGTH = "xmlReportParsing.output.maxReportLength";
+  static final String OUTPUT_SPILL_DIR = "xmlReportParsing.output.spillDir";
+  static final String REPORT_FAILURES_ONLY = "xmlReportParsing.reportFailuresOnly";
 
   static final String QUIET_MODE = "xmlReportParsing.quietMode";
 
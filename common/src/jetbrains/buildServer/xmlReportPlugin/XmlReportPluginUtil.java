@@ -25,6 +25,10 @@ import static jetbrains.buildServer.xmlReportPlugin.XmlReportPluginConstants.*;
 
 public class XmlReportPluginUtil {
   public static final Map<String, String> SUPPORTED_REPORT_TYPES;
+  public static final long DEFAULT_MONITOR_MIN_INTERVAL = 500L;
+  public static final long DEFAULT_MONITOR_MAX_INTERVAL = 5000L;
+  public static final int DEFAULT_MAX_OUTPUT_LENGTH = 1024 * 1024;
+  public static final long DEFAULT_MAX_REPORT_OUTPUT_LENGTH = 16 * 1024 * 1024;
   private static final List<String> INSPECTIONS_TYPES = Arrays.asList("findBugs",
                                                                       "pmd",
                                                                       "checkstyle",
@@ -66,6 +70,66 @@ public class XmlReportPluginUtil {
     return reparseUpdated == null || Boolean.parseBoolean(reparseUpdated);
   }
 
+  public static boolean isWatchFileSystem(@NotNull final Map<String, String> params) {
+    return Boolean.parseBoolean(params.get(WATCH_FILE_SYSTEM));
+  }
+
+  /**
+   * @return interval in milliseconds between the checks for new reports while they keep appearing
+   */
+  public static long getMonitorMinInterval(@NotNull final Map<String, String> params) {
+    return getPositiveLong(params, MONITOR_MIN_INTERVAL, DEFAULT_MONITOR_MIN_INTERVAL);
+  }
+
+  /**
+   * @return the longest interval in milliseconds between the checks for new reports when nothing changes
+   */
+  public static long getMonitorMaxInterval(@NotNull final Map<String, String> params) {
+    return Math.max(getMonitorMinInterval(params), getPositiveLong(params, MONITOR_MAX_INTERVAL, DEFAULT_MONITOR_MAX_INTERVAL));
+  }
+
+  /**
+   * @return number of threads parsing the reports on the agent, half of the available processors by default
+   */
+  public static int getParseThreads(@NotNull final Map<String, String> params) {
+    final int defaultValue = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    return (int)Math.min(Integer.MAX_VALUE, getPositiveLong(params, PARSE_THREADS, defaultValue));
+  }
+
+  /**
+   * @return the longest test output in characters passed to the build log, only the head and the tail of a longer output are kept
+   */
+  public static int getMaxOutputLength(@NotNull final Map<String, String> params) {
+    return (int)Math.min(Integer.MAX_VALUE, getPositiveLong(params, MAX_OUTPUT_LENGTH, DEFAULT_MAX_OUTPUT_LENGTH));
+  }
+
+  /**
+   * @return the longest output in characters of all the tests of one report passed to the build log
+   */
+  public static long getMaxReportOutputLength(@NotNull final Map<String, String> params) {
+    return getPositiveLong(params, MAX_REPORT_OUTPUT_LENGTH, DEFAULT_MAX_REPORT_OUTPUT_LENGTH);
+  }
+
+  /**
+   * @return directory relative to the checkout directory to save the whole output which didn't fit the limits to,
+   * e.g. to publish it as artifacts, or null if the output is not saved
+   */
+  @Nullable
+  public static String getOutputSpillDir(@NotNull final Map<String, String> params) {
+    return params.get(OUTPUT_SPILL_DIR);
+  }
+
+  private static long getPositiveLong(@NotNull final Map<String, String> params, @NotNull String name, long defaultValue) {
+    final String value = params.get(name);
+    if (StringUtil.isEmpty(value)) return defaultValue;
+    try {
+      final long result = Long.parseLong(value.trim());
+      return result > 0 ? result : defaultValue;
+    } catch (NumberFormatException e) {
+      return defaultValue;
+    }
+  }
+
   @Nullable
   public static String getXmlReportPaths(@NotNull final Map<String, String> params) {
     return params.get(REPORT_DIRS);
@@ -126,6 +190,13 @@ public class XmlReportPluginUtil {
     return Boolean.parseBoolean(params.get(LOG_INTERNAL_SYSTEM_ERROR));
   }
 
+  /**
+   * @return true if only the failed and the ignored tests should be reported, the passed ones are only counted then
+   */
+  public static boolean isReportFailuresOnly(@NotNull final Map<String, String> params) {
+    return Boolean.parseBoolean(params.get(REPORT_FAILURES_ONLY));
+  }
+
   public static boolean isInspectionType(@NotNull String type) {
     return INSPECTIONS_TYPES.contains(type);
   }
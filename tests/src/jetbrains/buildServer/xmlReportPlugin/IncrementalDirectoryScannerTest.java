@@ -0,0 +1,211 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import jetbrains.buildServer.BaseTestCase;
+import jetbrains.buildServer.util.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test
+public class IncrementalDirectoryScannerTest extends BaseTestCase {
+  private static final int DIRS = 20;
+  private static final int SUB_DIRS = 25;
+  private static final int FILES = 10;
+  private static final long PAST = 60 * 1000L;
+
+  @NotNull
+  private File myBaseFolder;
+  @NotNull
+  private List<File> myListedDirs;
+  @NotNull
+  private IncrementalDirectoryScanner myScanner;
+
+  @BeforeMethod
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    myBaseFolder = createTempDir();
+    myListedDirs = new ArrayList<File>();
+    myScanner = new IncrementalDirectoryScanner(new FileFilter() {
+      @Override
+      public boolean accept(final File file) {
+        return file.getName().endsWith(".xml");
+      }
+    }, new FileFilter() {
+      @Override
+      public boolean accept(final File dir) {
+        return !dir.getName().equals("skipped");
+      }
+    }) {
+      @Nullable
+      @Override
+      protected File[] listFiles(@NotNull final File dir) {
+        myListedDirs.add(dir);
+        return super.listFiles(dir);
+      }
+    };
+  }
+
+  @Test
+  public void test_unchanged_tree_not_listed() throws Exception {
+    final List<File> expected = createTree();
+
+    assertSameFiles(scan(), expected);
+    assertEquals(myListedDirs.size(), 1 + DIRS + DIRS * SUB_DIRS);
+
+    assertSameFiles(scan(), expected);
+    assertTrue(myListedDirs.isEmpty(), "Unchanged directories were listed: " + myListedDirs);
+  }
+
+  @Test
+  public void test_only_changed_directory_listed() throws Exception {
+    final List<File> expected = createTree();
+    scan();
+
+    final File dir = new File(myBaseFolder, "dir7/sub13");
+    expected.add(createFile(new File(dir, "new.xml")));
+    createFile(new File(dir, "new.txt"));
+
+    assertSameFiles(scan(), expected);
+    assertEquals(myListedDirs, Collections.singletonList(dir));
+  }
+
+  @Test
+  public void test_rejected_directory_not_listed() throws Exception {
+    final List<File> expected = createTree();
+    createFile(new File(myBaseFolder, "dir4/skipped/file.xml"));
+    createFile(new File(myBaseFolder, "skipped/sub1/file.xml"));
+
+    assertSameFiles(scan(), expected);
+    assertFalse(myListedDirs.contains(new File(myBaseFolder, "dir4/skipped")));
+    assertFalse(myListedDirs.contains(new File(myBaseFolder, "skipped")));
+  }
+
+  @Test
+  public void test_deleted_and_recreated_file() throws Exception {
+    final List<File> expected = createTree();
+    scan();
+
+    final File file = new File(myBaseFolder, "dir3/sub5/file2.xml");
+    assertTrue(FileUtil.delete(file));
+    expected.remove(file);
+
+    assertSameFiles(scan(), expected);
+
+    createFile(file);
+    expected.add(file);
+
+    assertSameFiles(scan(), expected);
+  }
+
+  @Test
+  public void test_deleted_and_recreated_directory() throws Exception {
+    final List<File> expected = createTree();
+    scan();
+
+    final File dir = new File(myBaseFolder, "dir11");
+    FileUtil.delete(dir);
+    for (File file : new ArrayList<File>(expected)) {
+      if (FileUtil.isAncestor(dir, file, true)) expected.remove(file);
+    }
+
+    assertSameFiles(scan(), expected);
+
+    final File file = new File(dir, "sub2/other.xml");
+    createFile(file);
+    setPastLastModified(file.getParentFile());
+    setPastLastModified(dir);
+    expected.add(file);
+
+    assertSameFiles(scan(), expected);
+  }
+
+  @Test
+  public void test_full_scan_lists_unchanged_directories() throws Exception {
+    final List<File> expected = createTree();
+    scan();
+
+    final File dir = new File(myBaseFolder, "dir7/sub13");
+    final long lastModified = dir.lastModified();
+    final File file = createFile(new File(dir, "new.xml"));
+    assertTrue(dir.setLastModified(lastModified));
+
+    assertSameFiles(scan(), expected);
+    assertTrue(myListedDirs.isEmpty(), "Unchanged directories were listed: " + myListedDirs);
+
+    expected.add(file);
+    myListedDirs.clear();
+    assertSameFiles(myScanner.scan(Collections.singletonList(myBaseFolder), true), expected);
+    assertEquals(myListedDirs.size(), 1 + DIRS + DIRS * SUB_DIRS);
+
+    assertSameFiles(scan(), expected);
+    assertTrue(myListedDirs.isEmpty(), "Unchanged directories were listed: " + myListedDirs);
+  }
+
+  @NotNull
+  private List<File> scan() {
+    myListedDirs.clear();
+    return myScanner.scan(Collections.singletonList(myBaseFolder));
+  }
+
+  @NotNull
+  private List<File> createTree() throws IOException {
+    final List<File> reports = new ArrayList<File>();
+    for (int i = 0; i < DIRS; ++i) {
+      final File dir = new File(myBaseFolder, "dir" + i);
+      for (int j = 0; j < SUB_DIRS; ++j) {
+        final File subDir = new File(dir, "sub" + j);
+        for (int k = 0; k < FILES; ++k) {
+          reports.add(createFile(new File(subDir, "file" + k + ".xml")));
+          createFile(new File(subDir, "file" + k + ".txt"));
+        }
+        setPastLastModified(subDir);
+      }
+      setPastLastModified(dir);
+    }
+    setPastLastModified(myBaseFolder);
+    return reports;
+  }
+
+  @NotNull
+  private static File createFile(@NotNull File file) throws IOException {
+    //noinspection ResultOfMethodCallIgnored
+    file.getParentFile().mkdirs();
+    FileUtil.writeFileAndReportErrors(file, "some text");
+    return file;
+  }
+
+  // directories modified just now are listed on each scan as they may be modified once more within the same second
+  private static void setPastLastModified(@NotNull File dir) {
+    assertTrue(dir.setLastModified(System.currentTimeMillis() - PAST));
+  }
+
+  private static void assertSameFiles(@NotNull List<File> actual, @NotNull List<File> expected) {
+    assertEquals(actual.size(), expected.size());
+    assertEquals(new HashSet<File>(actual), new HashSet<File>(expected));
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+@Test
+public class MonitorIntervalTest {
+  @Test
+  public void test_backoff_while_nothing_changes() {
+    final MonitorInterval interval = new MonitorInterval();
+    assertEquals(interval.next(false, 500, 5000), 500);
+    assertEquals(interval.next(false, 500, 5000), 1000);
+    assertEquals(interval.next(false, 500, 5000), 2000);
+    assertEquals(interval.next(false, 500, 5000), 4000);
+    assertEquals(interval.next(false, 500, 5000), 5000);
+    assertEquals(interval.next(false, 500, 5000), 5000);
+  }
+
+  @Test
+  public void test_reset_on_change() {
+    final MonitorInterval interval = new MonitorInterval();
+    interval.next(false, 500, 5000);
+    interval.next(false, 500, 5000);
+    interval.next(false, 500, 5000);
+    assertEquals(interval.next(true, 500, 5000), 500);
+    assertEquals(interval.next(false, 500, 5000), 1000);
+  }
+
+  @Test
+  public void test_bounds_changed() {
+    final MonitorInterval interval = new MonitorInterval();
+    interval.next(false, 500, 5000);
+    interval.next(false, 500, 5000);
+    interval.next(false, 500, 5000);
+    assertEquals(interval.next(false, 500, 1000), 1000);
+    assertEquals(interval.next(false, 3000, 10000), 3000);
+  }
+}
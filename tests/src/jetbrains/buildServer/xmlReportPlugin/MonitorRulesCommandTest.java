@@ -25,6 +25,7 @@ import org.jetbrains.annotations.NotNull;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 /**
@@ -62,10 +63,23 @@ public class MonitorRulesCommandTest extends BaseCommandTestCase {
     return createMonitorRulesCommand(myRulesState, myResult, parseOutOfDate, startTime);
   }
     
+  @NotNull
+  private MonitorRulesCommand createWatchingMonitorRulesCommand() {
+    return createMonitorRulesCommand(myRulesState, myResult, false, myTestStartTime, true);
+  }
+
   @NotNull
   private MonitorRulesCommand createMonitorRulesCommand(@NotNull ReportStateHolder reportStateHolder,
                                                         @NotNull final StringBuilder result,
                                                         final boolean parseOutOfDate, final long startTime) {
+    return createMonitorRulesCommand(reportStateHolder, result, parseOutOfDate, startTime, false);
+  }
+
+  @NotNull
+  private MonitorRulesCommand createMonitorRulesCommand(@NotNull ReportStateHolder reportStateHolder,
+                                                        @NotNull final StringBuilder result,
+                                                        final boolean parseOutOfDate, final long startTime,
+                                                        final boolean watchFileSystem) {
     final List<String> rulesList = Arrays.asList("**/*.xml");
     final Rules rules = new OptimizingIncludeExcludeRules(myBaseFolder, rulesList);
     final MonitorRulesCommand.MonitorRulesParameters parameters = new MonitorRulesCommand.MonitorRulesParameters() {
@@ -96,6 +110,15 @@ public class MonitorRulesCommandTest extends BaseCommandTestCase {
       public boolean isReparseUpdated() {
         return true;
       }
+
+      @Override
+      public boolean isWatchFileSystem() {
+        return watchFileSystem;
+      }
+
+      public void dispose() {
+        result.append("DISPOSE\n");
+      }
     };
 
     final MonitorRulesCommand.MonitorRulesListener listener = new MonitorRulesCommand.MonitorRulesListener() {
@@ -120,6 +143,13 @@ public class MonitorRulesCommandTest extends BaseCommandTestCase {
     assertNotContains(myResult, FILE_DETECTED_MESSAGE);
   }
 
+  private void runUntilDetected(@NotNull MonitorRulesCommand command, @NotNull String message) throws Exception {
+    for (int i = 0; i < 100 && !myResult.toString().replace("\\", "/").contains(message.replace("##BASE_DIR##", myBaseFolder.getPath().replace("\\", "/"))); ++i) {
+      Thread.sleep(100L);
+      command.run();
+    }
+  }
+
   @Test
   public void testWatchingPaths() throws Exception {
     final MonitorRulesCommand command = createMonitorRulesCommand();
@@ -236,4 +266,52 @@ public class MonitorRulesCommandTest extends BaseCommandTestCase {
     assertFileNotDetected();
     assertFileState(ReportStateHolder.ReportState.ERROR);
   }
+
+  @Test
+  public void testParametersDisposed() throws Exception {
+    final MonitorRulesCommand command = createMonitorRulesCommand(false, myTestStartTime);
+    command.run();
+    assertFalse(myResult.toString().contains("DISPOSE"), myResult.toString());
+
+    command.dispose();
+    assertTrue(myResult.toString().endsWith("DISPOSE\n"), myResult.toString());
+  }
+
+  @Test
+  public void testFileDetectedByFileSystemEvent() throws Exception {
+    final MonitorRulesCommand command = createWatchingMonitorRulesCommand();
+    try {
+      command.run();
+
+      assertFileDetected();
+      assertFileState(ReportStateHolder.ReportState.ON_PROCESSING);
+
+      myRulesState.setReportState(myFile, ReportStateHolder.ReportState.PROCESSED, EMPTY_RESULT);
+      myResult.delete(0, myResult.length());
+      writeFile(myFile, true);
+      runUntilDetected(command, FILE_DETECTED_MESSAGE);
+
+      assertFileDetected();
+      assertFileState(ReportStateHolder.ReportState.ON_PROCESSING);
+    } finally {
+      command.dispose();
+    }
+  }
+
+  @Test
+  public void testFileDetectedInNewFolderByFileSystemEvent() throws Exception {
+    final MonitorRulesCommand command = createWatchingMonitorRulesCommand();
+    try {
+      command.run();
+      myResult.delete(0, myResult.length());
+
+      writeFile("folder/inner/file.xml", true);
+      runUntilDetected(command, "DETECTED: ##BASE_DIR##/folder/inner/file.xml");
+
+      assertContains(myResult, "DETECTED: ##BASE_DIR##/folder/inner/file.xml");
+      assertFileNotDetected();
+    } finally {
+      command.dispose();
+    }
+  }
 }
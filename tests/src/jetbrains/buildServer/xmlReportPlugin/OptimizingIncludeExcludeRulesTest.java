@@ -20,12 +20,16 @@ import com.intellij.openapi.util.SystemInfo;
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import jetbrains.buildServer.BaseTestCase;
 import jetbrains.buildServer.util.CollectionsUtil;
 import jetbrains.buildServer.util.Converter;
 import jetbrains.buildServer.util.FileUtil;
 import jetbrains.buildServer.util.filters.Filter;
+import jetbrains.buildServer.util.pathMatcher.AntPatternFileCollector;
 import org.jetbrains.annotations.NotNull;
 import org.testng.SkipException;
 import org.testng.annotations.BeforeMethod;
@@ -288,36 +292,174 @@ public class OptimizingIncludeExcludeRulesTest extends BaseTestCase {
     assertExclude(createRules("some/path/**/*", "-:some/path/content/file.txt"), createFile("some/path/content/file.txt"));
   }
 
+  @Test
+  public void test_watch_roots() throws Exception {
+    createFile("some/path/content/file.txt");
+    createOuterFile("some/path/file.txt");
+
+    assertWatchRoots(createRules("+:some/path/**/*", "-:some/path/content/**/*"), "some/path");
+    assertWatchRoots(createRules("+:some/path/content/*", "+:some/**/*.txt"), "some");
+    assertWatchRoots(createRules("+:some/path/content/file.txt", "+:##OUTER_DIR##/some/path/*.txt"), "some/path/content", "##OUTER_DIR##/some/path");
+  }
+
+  @Test
+  public void test_excluded_subtree_not_traversed() throws Exception {
+    final Rules rules = createRules("+:**/build/test-results/**/*.xml", "-:**/node_modules/**");
+
+    assertInclude(rules, createFile("module/build/test-results/test/TEST-some.xml"));
+    assertExclude(rules, createFile("node_modules/lib/build/test-results/TEST-some.xml"));
+    assertExclude(rules, createFile("module/node_modules/lib/build/test-results/TEST-some.xml"));
+
+    assertTrue(rules.mayContainIncluded(resolve("module")));
+    assertTrue(rules.mayContainIncluded(resolve("module/build/test-results")));
+    assertFalse(rules.mayContainIncluded(resolve("node_modules")));
+    assertFalse(rules.mayContainIncluded(resolve("module/node_modules")));
+  }
+
+  @Test
+  public void test_unmatched_subtree_not_traversed() throws Exception {
+    final Rules rules = createRules("+:some/path/file.txt", "+:some/reports/*.xml", "+:##OUTER_DIR##/some/**/*.xml");
+
+    assertTrue(rules.mayContainIncluded(resolve("some")));
+    assertTrue(rules.mayContainIncluded(resolve("some/path")));
+    assertTrue(rules.mayContainIncluded(resolve("some/reports")));
+    assertTrue(rules.mayContainIncluded(resolve("##OUTER_DIR##/some/path/content")));
+    assertFalse(rules.mayContainIncluded(resolve("some/path/content")));
+    assertFalse(rules.mayContainIncluded(resolve("some/reports/content")));
+    assertFalse(rules.mayContainIncluded(resolve("another")));
+    assertFalse(rules.mayContainIncluded(resolve("##OUTER_DIR##/another")));
+  }
+
+  @Test
+  public void test_same_as_ant_collector_strictness_tie() throws Exception {
+    createParityFiles();
+
+    assertSameAsAntCollector("+:some/*/file.txt", "-:some/p*/file.txt");
+    assertSameAsAntCollector("-:some/p*/file.txt", "+:some/*/file.txt");
+    assertSameAsAntCollector("+:some/path/**", "-:some/path/**");
+    assertSameAsAntCollector("-:some/path/**", "+:some/path/**");
+    assertSameAsAntCollector("+:##BASE_DIR##/some/**", "-:some/*/content/**");
+  }
+
+  @Test
+  public void test_same_as_ant_collector_outer() throws Exception {
+    createParityFiles();
+
+    assertSameAsAntCollector("+:##OUTER_DIR##/some/**/*.txt", "-:##OUTER_DIR##/some/path/content/**", "+:some/path/*");
+    assertSameAsAntCollector("+:##OUTER_DIR##/some/path", "+:##BASE_DIR##/another/**");
+    assertSameAsAntCollector("+:**/*.txt", "+:##OUTER_DIR##/**/file.txt", "-:##OUTER_DIR##/another/**");
+  }
+
+  @Test
+  public void test_same_as_ant_collector_plain_rule() throws Exception {
+    createParityFiles();
+
+    assertSameAsAntCollector("+:some/path");
+    assertSameAsAntCollector("+:some/path", "-:some/path/content/inner");
+    assertSameAsAntCollector("+:some", "-:some/path/content/file.txt");
+    assertSameAsAntCollector("+:some/path.txt", "+:another/file.txt");
+  }
+
+  @Test
+  public void test_same_as_ant_collector_case() throws Exception {
+    createParityFiles();
+
+    assertSameAsAntCollector("+:SOME/PATH/**/*.TXT");
+    assertSameAsAntCollector("+:Another", "+:##OUTER_DIR##/Some/Path/*");
+    assertSameAsAntCollector("+:some/**", "-:Some/Path/Content/**");
+  }
+
+  @Test
+  public void test_case_insensitive_matcher() throws Exception {
+    final PathRulesMatcher matcher = new PathRulesMatcher(false);
+    matcher.addRule(true, "/Base/Some/**/*.XML");
+    matcher.addRule(false, "/base/some/Node_Modules/**");
+
+    assertTrue(matcher.isIncluded("/base/some/TEST-a.xml"));
+    assertTrue(matcher.isIncluded("/BASE/SOME/build/TEST-a.Xml"));
+    assertFalse(matcher.isIncluded("/base/some/node_modules/TEST-a.xml"));
+    assertTrue(matcher.mayContainIncluded("/base/SOME"));
+    assertFalse(matcher.mayContainIncluded("/base/some/NODE_MODULES"));
+
+    final PathRulesMatcher caseSensitive = new PathRulesMatcher(true);
+    caseSensitive.addRule(true, "/Base/Some/**/*.XML");
+
+    assertFalse(caseSensitive.isIncluded("/base/some/TEST-a.xml"));
+    assertFalse(caseSensitive.mayContainIncluded("/base/some"));
+  }
+
+  private void createParityFiles() throws IOException {
+    for (String path : new String[]{"some/path/file.txt", "some/path/content/file.txt", "some/path/content/inner/file.txt",
+                                    "some/path.txt", "some/file.xml", "another/file.txt", "file.txt"}) {
+      createFile(path);
+      createOuterFile(path);
+    }
+  }
+
+  // the rules are matched the same way the AntPatternFileCollector used before the matcher matched them
+  private void assertSameAsAntCollector(@NotNull String... rules) throws IOException {
+    final List<String> resolved = resolveRules(rules);
+    final List<File> expected = AntPatternFileCollector.scanDir(myBaseFolder, resolved.toArray(new String[resolved.size()]),
+                                                                AntPatternFileCollector.ScanOption.USE_RULE_STRICTNESS,
+                                                                AntPatternFileCollector.ScanOption.ALLOW_EXTERNAL_SCAN);
+    assertEquals(canonical(createRules(myBaseFolder, resolved).collectFiles()), canonical(expected), Arrays.toString(rules));
+  }
+
+  @NotNull
+  private static Set<File> canonical(@NotNull Collection<File> files) throws IOException {
+    final Set<File> result = new HashSet<File>();
+    for (File file : files) {
+      result.add(file.getCanonicalFile());
+    }
+    return result;
+  }
+
   @NotNull
   private Rules createRules(@NotNull String... rules) {
-    return createRules(myBaseFolder,
-                       CollectionsUtil.convertCollection(Arrays.asList(rules),
-                                                         new Converter<String, String>() {
-                                                           public String createFrom(@NotNull final String source) {
-                                                             return source.replace("##BASE_DIR##", myBaseFolder.getAbsolutePath())
-                                                                          .replace("##OUTER_DIR##", myOuterFolder.getAbsolutePath());
-                                                           }
-                                                         }));
+    return createRules(myBaseFolder, resolveRules(rules));
+  }
+
+  @NotNull
+  private List<String> resolveRules(@NotNull String... rules) {
+    return CollectionsUtil.convertCollection(Arrays.asList(rules),
+                                             new Converter<String, String>() {
+                                               public String createFrom(@NotNull final String source) {
+                                                 return source.replace("##BASE_DIR##", myBaseFolder.getAbsolutePath())
+                                                              .replace("##OUTER_DIR##", myOuterFolder.getAbsolutePath());
+                                               }
+                                             });
   }
 
   private void assertInclude(@NotNull Rules rules, @NotNull File file) throws Exception {
     assertTrue(contains(rules.collectFiles(), file));
+    assertTrue(rules.isIncluded(file));
   }
 
   private void assertIncludeWithStars(@NotNull Rules rules, @NotNull File file) throws Exception {
     final boolean contains = contains(rules.collectFiles(), file);
     if (starsMatchRoot()) assertTrue(contains);
     else assertFalse(contains);
+    assertEquals(rules.isIncluded(file), contains);
   }
 
   private void assertExclude(@NotNull Rules rules, @NotNull File file) throws Exception {
     assertFalse(contains(rules.collectFiles(), file));
+    assertFalse(rules.isIncluded(file));
   }
 
   private void assertExcludeWithStars(@NotNull Rules rules, @NotNull File file) throws Exception {
     final boolean contains = contains(rules.collectFiles(), file);
     if (starsMatchRoot()) assertFalse(contains);
     else assertTrue(contains);
+    assertEquals(rules.isIncluded(file), contains);
+  }
+
+  private void assertWatchRoots(@NotNull Rules rules, @NotNull String... paths) throws Exception {
+    final Collection<File> roots = rules.getWatchRoots();
+    assertEquals(roots.size(), paths.length);
+    for (String path : paths) {
+      assertTrue(contains(roots, FileUtil.resolvePath(myBaseFolder, path.replace("##OUTER_DIR##", myOuterFolder.getAbsolutePath()))), path + " is not watched: " + roots);
+    }
   }
 
   private boolean contains(@NotNull java.util.Collection<File> files, @NotNull final File file) {
@@ -339,12 +481,17 @@ public class OptimizingIncludeExcludeRulesTest extends BaseTestCase {
 
   @NotNull
   private File createFile(@NotNull final String path) throws IOException {
-    final File resolved = FileUtil.resolvePath(myBaseFolder, path.replace("##OUTER_DIR##", myOuterFolder.getAbsolutePath()));
+    final File resolved = resolve(path);
     resolved.getParentFile().mkdirs();
     FileUtil.writeFileAndReportErrors(resolved, "some text");
     return resolved;
   }
 
+  @NotNull
+  private File resolve(@NotNull final String path) {
+    return FileUtil.resolvePath(myBaseFolder, path.replace("##OUTER_DIR##", myOuterFolder.getAbsolutePath()));
+  }
+
   protected boolean starsMatchRoot() {
     return true;
   }
@@ -169,6 +169,28 @@ public class ParseReportCommandTest extends BaseCommandTestCase {
     assertFileState(ReportStateHolder.ReportState.ERROR);
   }
 
+  @Test
+  public void testFlowDisposedAfterResult() throws Exception {
+    final Parser parser = createParser(true, false);
+    final ParseReportCommand parseReportCommand = createParseReportCommand(parser);
+    parseReportCommand.run();
+
+    assertEquals(myResult.toString().replace(myFile.getPath(), "file.xml"),
+                 "PARSING: file.xml PREVIOUS RESULT: null\n" +
+                 "FLUSH\n" +
+                 "PROCESSING RESULT: FILE: file.xml RESULT: EMPTY_RESULT\n" +
+                 "DISPOSE\n");
+  }
+
+  @Test
+  public void testFlowDisposedAfterException() throws Exception {
+    final Parser parser = createParser(true, true);
+    final ParseReportCommand parseReportCommand = createParseReportCommand(parser);
+    parseReportCommand.run();
+
+    assertTrue(myResult.toString().endsWith("FLUSH\nPROCESSING RESULT: FILE: " + myFile.getPath() + " RESULT: EMPTY_RESULT\nDISPOSE\n"), myResult.toString());
+  }
+
   @NotNull
   private ParseParameters createParseParameters() {
     return new
@@ -197,6 +219,14 @@ public class ParseReportCommandTest extends BaseCommandTestCase {
           throw new IllegalStateException(UNEXPECTED_CALL_MESSAGE);
         }
 
+        public void flush() {
+          myResult.append("FLUSH\n");
+        }
+
+        public void dispose() {
+          myResult.append("DISPOSE\n");
+        }
+
         @NotNull
         public Map<String, String> getParameters() {
           throw new IllegalStateException(UNEXPECTED_CALL_MESSAGE);
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jetbrains.annotations.NotNull;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+@Test
+public class ReportsMonitorTest {
+  @NotNull
+  private ScheduledExecutorService myExecutor;
+  @NotNull
+  private ReportsMonitor myMonitor;
+
+  @BeforeMethod
+  public void setUp() {
+    myExecutor = new ScheduledThreadPoolExecutor(1);
+    myMonitor = new ReportsMonitor(myExecutor);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    myExecutor.shutdownNow();
+  }
+
+  @Test
+  public void test_checks_repeated_until_stopped() throws Exception {
+    final CountDownLatch checked = new CountDownLatch(3);
+    final AtomicInteger count = new AtomicInteger();
+    final ReportsMonitor.Handle handle = myMonitor.start(new ReportsMonitor.Check() {
+      public long run() {
+        count.incrementAndGet();
+        checked.countDown();
+        return 10;
+      }
+    });
+
+    assertTrue(checked.await(5, TimeUnit.SECONDS));
+    handle.stop();
+
+    final int stoppedAt = count.get();
+    Thread.sleep(100);
+    assertEquals(count.get(), stoppedAt);
+  }
+
+  @Test
+  public void test_stop_waits_for_running_check() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final AtomicBoolean completed = new AtomicBoolean();
+    final ReportsMonitor.Handle handle = myMonitor.start(new ReportsMonitor.Check() {
+      public long run() {
+        started.countDown();
+        try {
+          Thread.sleep(200);
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+        completed.set(true);
+        return 10;
+      }
+    });
+
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    handle.stop();
+    assertTrue(completed.get());
+  }
+
+  @Test
+  public void test_contexts_share_executor() throws Exception {
+    final CountDownLatch checked = new CountDownLatch(2);
+    final ReportsMonitor.Check check = new ReportsMonitor.Check() {
+      public long run() {
+        checked.countDown();
+        return 10;
+      }
+    };
+    myMonitor.start(check);
+    myMonitor.start(check);
+
+    assertTrue(checked.await(5, TimeUnit.SECONDS));
+    myMonitor.stopAll();
+  }
+
+  @Test
+  public void test_failed_check_rescheduled() throws Exception {
+    final CountDownLatch checked = new CountDownLatch(2);
+    myMonitor.start(new ReportsMonitor.Check() {
+      public long run() {
+        checked.countDown();
+        throw new IllegalStateException("check failed");
+      }
+    });
+
+    assertTrue(checked.await(15, TimeUnit.SECONDS));
+    myMonitor.stopAll();
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import jetbrains.buildServer.BaseTestCase;
+import jetbrains.buildServer.util.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test
+public class SharedRulesScannerTest extends BaseTestCase {
+  @NotNull
+  private File myBaseFolder;
+  @NotNull
+  private SharedRulesScanner myScanner;
+
+  @BeforeMethod
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    myBaseFolder = createTempDir();
+    myScanner = new SharedRulesScanner();
+  }
+
+  @Test
+  public void test_files_dispatched_to_matching_rules() throws Exception {
+    final File junit = createFile("module/build/test-results/TEST-some.xml");
+    final File checkstyle = createFile("module/build/checkstyle/main.xml");
+    final File both = createFile("module/build/reports/all.xml");
+    createFile("module/src/some.xml");
+
+    final Rules junitRules = createRules("+:**/test-results/*.xml", "+:**/reports/*.xml");
+    final Rules checkstyleRules = createRules("+:module/build/checkstyle/*.xml", "+:module/build/reports/*.xml");
+    final Rules emptyRules = createRules("+:another/**/*.xml");
+
+    final Map<Rules, List<File>> files = myScanner.scan(Arrays.asList(junitRules, checkstyleRules, emptyRules), false);
+
+    assertSameFiles(files.get(junitRules), junit, both);
+    assertSameFiles(files.get(checkstyleRules), checkstyle, both);
+    assertSameFiles(files.get(emptyRules));
+  }
+
+  @Test
+  public void test_rules_added() throws Exception {
+    final File junit = createFile("module/build/test-results/TEST-some.xml");
+    final File checkstyle = createFile("module/build/checkstyle/main.xml");
+
+    final Rules junitRules = createRules("+:**/test-results/*.xml");
+    final Rules checkstyleRules = createRules("+:**/checkstyle/*.xml");
+
+    assertSameFiles(myScanner.scan(Collections.singletonList(junitRules), false).get(junitRules), junit);
+
+    final Map<Rules, List<File>> files = myScanner.scan(Arrays.asList(junitRules, checkstyleRules), false);
+    assertSameFiles(files.get(junitRules), junit);
+    assertSameFiles(files.get(checkstyleRules), checkstyle);
+  }
+
+  @Test
+  public void test_full_scan_lists_directory_with_same_last_modified() throws Exception {
+    final File first = createFile("module/build/test-results/TEST-first.xml");
+    final File dir = first.getParentFile();
+    for (File d = dir; !d.equals(myBaseFolder); d = d.getParentFile()) {
+      setPastLastModified(d);
+    }
+    final long lastModified = dir.lastModified();
+
+    final Rules rules = createRules("+:**/test-results/*.xml");
+    final List<Rules> rulesList = Collections.singletonList(rules);
+    assertSameFiles(myScanner.scan(rulesList, false).get(rules), first);
+
+    // e.g. a file system with a coarse timestamp resolution
+    final File second = createFile("module/build/test-results/TEST-second.xml");
+    assertTrue(dir.setLastModified(lastModified));
+
+    assertSameFiles(myScanner.scan(rulesList, false).get(rules), first);
+    assertSameFiles(myScanner.scan(rulesList, true).get(rules), first, second);
+  }
+
+  @NotNull
+  private Rules createRules(@NotNull String... rules) {
+    return new OptimizingIncludeExcludeRules(myBaseFolder, Arrays.asList(rules));
+  }
+
+  @NotNull
+  private File createFile(@NotNull String path) throws IOException {
+    final File file = new File(myBaseFolder, path);
+    //noinspection ResultOfMethodCallIgnored
+    file.getParentFile().mkdirs();
+    FileUtil.writeFileAndReportErrors(file, "some text");
+    return file;
+  }
+
+  private static void setPastLastModified(@NotNull File dir) {
+    assertTrue(dir.setLastModified(System.currentTimeMillis() - 60 * 1000L));
+  }
+
+  private static void assertSameFiles(@NotNull List<File> actual, @NotNull File... expected) {
+    assertEquals(actual.size(), expected.length);
+    assertEquals(new HashSet<File>(actual), new HashSet<File>(Arrays.asList(expected)));
+  }
+}
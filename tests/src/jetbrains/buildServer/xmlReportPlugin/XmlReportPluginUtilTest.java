@@ -92,4 +92,61 @@ public class XmlReportPluginUtilTest {
     myRunParams.put(MAX_WARNINGS, "100");
     assertEquals(getMaxWarnings(myRunParams), 100);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testWatchFileSystemOnEmptyParams() {
+    assertFalse(isWatchFileSystem(myRunParams), "Watching file system must be disabled");
+  }
+
+  @Test
+  public void testWatchFileSystemAfterPuttingTrueToParams() {
+    myRunParams.put(WATCH_FILE_SYSTEM, TRUE);
+    assertTrue(isWatchFileSystem(myRunParams), "Watching file system must be enabled");
+  }
+
+  @Test
+  public void testMonitorIntervalsOnEmptyParams() {
+    assertEquals(getMonitorMinInterval(myRunParams), DEFAULT_MONITOR_MIN_INTERVAL);
+    assertEquals(getMonitorMaxInterval(myRunParams), DEFAULT_MONITOR_MAX_INTERVAL);
+  }
+
+  @Test
+  public void testMonitorIntervalsAfterPuttingToParams() {
+    myRunParams.put(MONITOR_MIN_INTERVAL, "100");
+    myRunParams.put(MONITOR_MAX_INTERVAL, "20000");
+    assertEquals(getMonitorMinInterval(myRunParams), 100L);
+    assertEquals(getMonitorMaxInterval(myRunParams), 20000L);
+  }
+
+  @Test
+  public void testMonitorIntervalsAfterPuttingInvalidToParams() {
+    myRunParams.put(MONITOR_MIN_INTERVAL, "-1");
+    myRunParams.put(MONITOR_MAX_INTERVAL, "often");
+    assertEquals(getMonitorMinInterval(myRunParams), DEFAULT_MONITOR_MIN_INTERVAL);
+    assertEquals(getMonitorMaxInterval(myRunParams), DEFAULT_MONITOR_MAX_INTERVAL);
+  }
+
+  @Test
+  public void testMonitorMaxIntervalNotLessThanMin() {
+    myRunParams.put(MONITOR_MIN_INTERVAL, "10000");
+    myRunParams.put(MONITOR_MAX_INTERVAL, "1000");
+    assertEquals(getMonitorMaxInterval(myRunParams), 10000L);
+  }
+
+  @Test
+  public void testParseThreadsOnEmptyParams() {
+    assertEquals(getParseThreads(myRunParams), Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+  }
+
+  @Test
+  public void testParseThreadsAfterPuttingToParams() {
+    myRunParams.put(PARSE_THREADS, "3");
+    assertEquals(getParseThreads(myRunParams), 3);
+  }
+
+  @Test
+  public void testParseThreadsAfterPuttingInvalidToParams() {
+    myRunParams.put(PARSE_THREADS, "0");
+    assertEquals(getParseThreads(myRunParams), Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.duplicates;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import jetbrains.buildServer.agent.BuildProgressLogger;
+import jetbrains.buildServer.agent.duplicates.DuplicatesReporter;
+import jetbrains.buildServer.duplicator.DuplicateInfo;
+import org.jetbrains.annotations.NotNull;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.api.Invocation;
+import org.jmock.lib.action.CustomAction;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+@Test
+public class TeamCityDuplicationReporterTest {
+  private Mockery myContext;
+  private DuplicatesReporter myDuplicatesReporter;
+  private BuildProgressLogger myLogger;
+  private List<Integer> mySessions;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    myContext = new Mockery();
+    myDuplicatesReporter = myContext.mock(DuplicatesReporter.class);
+    myLogger = myContext.mock(BuildProgressLogger.class);
+    mySessions = new ArrayList<Integer>();
+
+    myContext.checking(new Expectations() {{
+      allowing(myLogger);
+      allowing(myDuplicatesReporter).startDuplicates();
+      allowing(myDuplicatesReporter).finishDuplicates();
+      allowing(myDuplicatesReporter).addDuplicates(with(any(Collection.class)));
+      will(new CustomAction("collect duplicates") {
+        public Object invoke(Invocation invocation) {
+          mySessions.add(((Collection<?>)invocation.getParameter(0)).size());
+          return null;
+        }
+      });
+      never(myDuplicatesReporter).addDuplicate(with(any(DuplicateInfo.class)));
+    }});
+  }
+
+  @Test
+  public void test_duplicates_passed_at_once() {
+    final TeamCityDuplicationReporter reporter = createReporter(new ReportedDuplicates());
+    reporter.startDuplicates();
+    reporter.reportDuplicate(createDuplicate(1, "a.java", 10, "b.java", 20));
+    reporter.reportDuplicate(createDuplicate(2, "a.java", 30, "c.java", 40));
+    reporter.reportDuplicate(createDuplicate(3, "b.java", 50, "c.java", 60));
+    reporter.finishDuplicates();
+
+    assertEquals(mySessions, Arrays.asList(3));
+    myContext.assertIsSatisfied();
+  }
+
+  @Test
+  public void test_duplicates_reported_once_per_build() {
+    final ReportedDuplicates reported = new ReportedDuplicates();
+
+    final TeamCityDuplicationReporter first = createReporter(reported);
+    first.startDuplicates();
+    first.reportDuplicate(createDuplicate(1, "a.java", 10, "b.java", 20));
+    first.reportDuplicate(createDuplicate(2, "a.java", 30, "c.java", 40));
+    first.finishDuplicates();
+
+    final TeamCityDuplicationReporter second = createReporter(reported);
+    second.startDuplicates();
+    second.reportDuplicate(createDuplicate(1, "b.java", 20, "a.java", 10));
+    second.reportDuplicate(createDuplicate(2, "a.java", 30, "c.java", 41));
+    second.finishDuplicates();
+
+    assertEquals(mySessions, Arrays.asList(2, 1));
+    assertEquals(reported.size(), 3);
+    myContext.assertIsSatisfied();
+  }
+
+  @Test
+  public void test_keys() {
+    assertEquals(ReportedDuplicates.createKey(createDuplicate(1, "a.java", 10, "b.java", 20)),
+                 ReportedDuplicates.createKey(createDuplicate(1, "b.java", 20, "a.java", 10)));
+    assertFalse(ReportedDuplicates.createKey(createDuplicate(1, "a.java", 10, "b.java", 20))
+                  .equals(ReportedDuplicates.createKey(createDuplicate(2, "a.java", 10, "b.java", 20))));
+    assertFalse(ReportedDuplicates.createKey(createDuplicate(1, "a.java", 10, "b.java", 20))
+                  .equals(ReportedDuplicates.createKey(createDuplicate(1, "a.java", 10, "b.java", 21))));
+  }
+
+  @NotNull
+  private TeamCityDuplicationReporter createReporter(@NotNull ReportedDuplicates reported) {
+    return new TeamCityDuplicationReporter(myDuplicatesReporter, myLogger, "base", "DupFailure", reported);
+  }
+
+  @NotNull
+  private static DuplicationResult createDuplicate(int hash, @NotNull String path1, int line1, @NotNull String path2, int line2) {
+    final DuplicationResult result = new DuplicationResult(5, 50);
+    result.setHash(hash);
+    result.addFragment(new DuplicatingFragment(path1, line1));
+    result.addFragment(new DuplicatingFragment(path2, line2));
+    result.setFragmentHashes();
+    return result;
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.parsers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import jetbrains.buildServer.BaseTestCase;
+import jetbrains.buildServer.util.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test
+public class CheckpointingInputStreamTest extends BaseTestCase {
+  private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
+  private static final String SUITE = "<testsuite name=\"Suite\" tests=\"3\">";
+  private static final String FIRST = "<testcase name=\"first\" time=\"0.1\"/>";
+  private static final String SECOND = "<testcase name=\"second\"><failure message=\"a > b\"><![CDATA[</testcase>]]></failure></testcase>";
+  private static final String THIRD = "<testcase name=\"third\"><!-- </testcase> --></testcase>";
+
+  @NotNull
+  private File myReport;
+
+  @BeforeMethod
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    myReport = new File(createTempDir(), "report.xml");
+  }
+
+  @Test
+  public void test_checkpoint_after_last_confirmed_element() throws Exception {
+    write(HEADER + "<testsuites>" + SUITE + FIRST + SECOND + "<testca");
+
+    final XmlCheckpoint checkpoint = readAll(2);
+    assertNotNull(checkpoint);
+    assertEquals(checkpoint.getIndex(), 2);
+    assertEquals(checkpoint.getOffset(), (HEADER + "<testsuites>" + SUITE + FIRST + SECOND).length());
+    assertEquals(new String(checkpoint.getPrefix(), "UTF-8"), HEADER + "<testsuites>" + SUITE);
+  }
+
+  @Test
+  public void test_unconfirmed_elements_ignored() throws Exception {
+    write(HEADER + SUITE + FIRST + SECOND + THIRD);
+
+    final XmlCheckpoint checkpoint = readAll(1);
+    assertNotNull(checkpoint);
+    assertEquals(checkpoint.getIndex(), 1);
+    assertEquals(checkpoint.getOffset(), (HEADER + SUITE + FIRST).length());
+  }
+
+  @Test
+  public void test_resumed_from_checkpoint() throws Exception {
+    write(HEADER + SUITE + FIRST);
+    final XmlCheckpoint checkpoint = readAll(1);
+    assertNotNull(checkpoint);
+
+    write(HEADER + SUITE + FIRST + SECOND + THIRD + "</testsuite>");
+    final CheckpointingInputStream in = CheckpointingInputStream.open(myReport, "testcase", "testsuite", checkpoint);
+    try {
+      assertSame(in.getCheckpoint(), checkpoint);
+      assertEquals(read(in), HEADER + SUITE + SECOND + THIRD + "</testsuite>");
+
+      in.confirm(3);
+      final XmlCheckpoint last = in.getCheckpoint();
+      assertNotNull(last);
+      assertEquals(last.getIndex(), 3);
+      assertEquals(last.getOffset(), (HEADER + SUITE + FIRST + SECOND + THIRD).length());
+    } finally {
+      in.close();
+    }
+  }
+
+  @Test
+  public void test_rewritten_report_read_from_beginning() throws Exception {
+    write(HEADER + SUITE + FIRST + SECOND);
+    final XmlCheckpoint checkpoint = readAll(2);
+    assertNotNull(checkpoint);
+
+    write(HEADER + "<testsuite name=\"Another\">" + FIRST + THIRD + THIRD);
+    final CheckpointingInputStream in = CheckpointingInputStream.open(myReport, "testcase", "testsuite", checkpoint);
+    try {
+      assertNull(in.getCheckpoint());
+      assertEquals(read(in), HEADER + "<testsuite name=\"Another\">" + FIRST + THIRD + THIRD);
+    } finally {
+      in.close();
+    }
+  }
+
+  @Test
+  public void test_elements_with_other_parent_ignored() throws Exception {
+    write(HEADER + SUITE + "<properties><testcase name=\"property\"/></properties>" + FIRST);
+
+    final XmlCheckpoint checkpoint = readAll(1);
+    assertNotNull(checkpoint);
+    assertEquals(checkpoint.getOffset(), (HEADER + SUITE + "<properties><testcase name=\"property\"/></properties>" + FIRST).length());
+  }
+
+  @Test
+  public void test_byte_order_mark_skipped() throws Exception {
+    write("\uFEFF" + HEADER + SUITE + FIRST);
+    final XmlCheckpoint checkpoint = readAll(1);
+    assertNotNull(checkpoint);
+    assertEquals(checkpoint.getOffset(), 3 + (HEADER + SUITE + FIRST).length());
+
+    write("\uFEFF" + HEADER + SUITE + FIRST + SECOND);
+    CheckpointingInputStream in = CheckpointingInputStream.open(myReport, "testcase", "testsuite", null);
+    try {
+      assertEquals(read(in), HEADER + SUITE + FIRST + SECOND);
+    } finally {
+      in.close();
+    }
+
+    in = CheckpointingInputStream.open(myReport, "testcase", "testsuite", checkpoint);
+    try {
+      assertSame(in.getCheckpoint(), checkpoint);
+      assertEquals(read(in), HEADER + SUITE + SECOND);
+    } finally {
+      in.close();
+    }
+  }
+
+  @Test
+  public void test_detect_charset() throws Exception {
+    assertEquals(detectCharset("<?xml version=\"1.0\" encoding='ISO-8859-1'?><a/>"), "ISO-8859-1");
+    assertEquals(detectCharset("<?xml version=\"1.0\"?><a/>"), "UTF-8");
+    assertEquals(detectCharset("<?xml version=\"1.0\" encoding=\"unknown\"?><a/>"), "UTF-8");
+    assertEquals(detectCharset("<a/>"), "UTF-8");
+    final byte[] utf16 = "<a/>".getBytes("UTF-16LE");
+    assertEquals(CheckpointingInputStream.detectCharset(utf16, utf16.length), "UTF-16LE");
+  }
+
+  @Nullable
+  private XmlCheckpoint readAll(int confirmed) throws IOException {
+    final CheckpointingInputStream in = CheckpointingInputStream.open(myReport, "testcase", "testsuite", null);
+    try {
+      read(in);
+      in.confirm(confirmed);
+      return in.getCheckpoint();
+    } finally {
+      in.close();
+    }
+  }
+
+  @NotNull
+  private static String read(@NotNull CheckpointingInputStream in) throws IOException {
+    final Reader reader = in.createReader();
+    final StringBuilder result = new StringBuilder();
+    final char[] buffer = new char[7];
+    int read;
+    while ((read = reader.read(buffer)) > 0) {
+      result.append(buffer, 0, read);
+    }
+    return result.toString();
+  }
+
+  @NotNull
+  private static String detectCharset(@NotNull String head) throws IOException {
+    final byte[] bytes = head.getBytes("UTF-8");
+    return CheckpointingInputStream.detectCharset(bytes, bytes.length);
+  }
+
+  private void write(@NotNull String content) throws IOException {
+    FileUtil.writeFile(myReport, content, "UTF-8");
+  }
+}
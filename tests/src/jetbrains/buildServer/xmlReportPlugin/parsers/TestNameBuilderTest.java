@@ -0,0 +1,67 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.parsers;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+@Test
+public class TestNameBuilderTest {
+  @Test
+  public void test_prefixed_name() {
+    final TestNameBuilder builder = new TestNameBuilder();
+    assertEquals(builder.getName("com.example.Test", "testMethod"), "com.example.Test.testMethod");
+    assertEquals(builder.getName("com.example.Other", "test"), "com.example.Other.test");
+  }
+
+  @Test
+  public void test_name_not_prefixed() {
+    final TestNameBuilder builder = new TestNameBuilder();
+    final String name = "com.example.Test.testMethod";
+    assertSame(builder.getName("com.example.Test", name), name);
+    assertSame(builder.getName(null, name), name);
+  }
+
+  @Test
+  public void test_null_parts() {
+    final TestNameBuilder builder = new TestNameBuilder();
+    assertEquals(builder.getName(null, null), "null");
+    assertEquals(builder.getName("Test", null), "Test.null");
+  }
+
+  @Test
+  public void test_name_with_params() {
+    final TestNameBuilder builder = new TestNameBuilder();
+    assertEquals(builder.getName("Test", "test", Arrays.asList("1", "\"a\"")), "Test.test(1, \"a\")");
+    assertEquals(builder.getName("Test", "Test.test", Collections.singletonList("null")), "Test.test(null)");
+    assertEquals(builder.getName("Test", "test", Collections.<String>emptyList()), "Test.test");
+  }
+
+  @Test
+  public void test_long_name() {
+    final TestNameBuilder builder = new TestNameBuilder();
+    final char[] chars = new char[100000];
+    Arrays.fill(chars, 'a');
+    final String param = new String(chars);
+    assertEquals(builder.getName("Test", "test", Collections.singletonList(param)), "Test.test(" + param + ")");
+    assertEquals(builder.getName("Test", "test"), "Test.test");
+  }
+}
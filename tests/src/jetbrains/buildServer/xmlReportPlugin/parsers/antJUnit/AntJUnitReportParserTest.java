@@ -16,6 +16,8 @@
 
 package jetbrains.buildServer.xmlReportPlugin.parsers.antJUnit;
 
+import java.io.File;
+import jetbrains.buildServer.util.FileUtil;
 import jetbrains.buildServer.xmlReportPlugin.BaseParserTestCase;
 import jetbrains.buildServer.xmlReportPlugin.tests.SecondDurationParser;
 import jetbrains.buildServer.xmlReportPlugin.tests.TestParsingResult;
@@ -23,6 +25,8 @@ import org.jetbrains.annotations.NotNull;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 
 @Test
 public class AntJUnitReportParserTest extends BaseParserTestCase {
@@ -458,6 +462,18 @@ public class AntJUnitReportParserTest extends BaseParserTestCase {
       "EndSuite\n");
   }
 
+  @Test
+  public void testLogCaseSystemOutLimited() throws Exception {
+    parse(new AntJUnitReportParser(getTestReporter(), new SecondDurationParser(), false, 6, 100, null), "caseWithSystemOut.xml");
+    assertResultEquals(
+      "TestSuite:TestCase\n" +
+      "  Test:TestCase.test1\n" +
+      "    StdOutput:fro\n\n... 4 characters of system-out skipped ...\n\nst1\n" +
+      "  EndTest:0\n" +
+      "------------------------\n" +
+      "EndSuite\n");
+  }
+
   @Test
   public void testLogCaseSystemErr() throws Exception {
     parse("caseWithSystemErr.xml");
@@ -594,6 +610,56 @@ public class AntJUnitReportParserTest extends BaseParserTestCase {
       "EndSuite\n");
   }
 
+  @Test
+  public void testGrowingReportResumedAfterLastCase() throws Exception {
+    final String head = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                        "<testsuite name=\"TestCase\" tests=\"3\">\n" +
+                        "  <testcase classname=\"TestCase\" name=\"test1\" time=\"0.031\"/>\n" +
+                        "  <testcase classname=\"TestCase\" name=\"test2\" time=\"0.031\">\n" +
+                        "    <system-out>from test2</system-out>\n" +
+                        "  </testcase>";
+    final String tail = "\n  <testcase classname=\"TestCase\" name=\"test3\" time=\"0.031\"/>\n" +
+                        "</testsuite>\n";
+
+    final File report = File.createTempFile("growing", ".xml");
+    try {
+      FileUtil.writeFileAndReportErrors(report, head + "\n  <testcase classname=\"Test");
+      final AntJUnitReportParser firstParser = getParser();
+      firstParser.parse(report, null);
+      final TestParsingResult first = (TestParsingResult) firstParser.getParsingResult();
+      assertNotNull(first);
+      assertEquals(first.getTests(), 2);
+      assertNotNull(first.getCheckpoint());
+      assertEquals(first.getCheckpoint().getOffset(), head.length());
+
+      // the already parsed part is not read again, so breaking it doesn't affect the result
+      FileUtil.writeFileAndReportErrors(report, head.replace("name=\"test1\"", "name=\"test1'") + tail);
+      final AntJUnitReportParser secondParser = getParser();
+      secondParser.parse(report, first);
+      final TestParsingResult second = (TestParsingResult) secondParser.getParsingResult();
+      assertNotNull(second);
+      assertNull(second.getProblem());
+      assertEquals(second.getTests(), 3);
+    } finally {
+      FileUtil.delete(report);
+    }
+
+    assertResultEquals("TestSuite:TestCase\n" +
+                       "  Test:TestCase.test1\n" +
+                       "  EndTest:31\n" +
+                       "------------------------\n" +
+                       "  Test:TestCase.test2\n" +
+                       "    StdOutput:from test2\n" +
+                       "  EndTest:31\n" +
+                       "------------------------\n" +
+                       "EndSuite\n" +
+                       "TestSuite:TestCase\n" +
+                       "  Test:TestCase.test3\n" +
+                       "  EndTest:31\n" +
+                       "------------------------\n" +
+                       "EndSuite\n");
+  }
+
   @Test
   public void testNUnitReport_TW_33521() throws Exception {
     parse(new AntJUnitReportParser(getTestReporter(), new SecondDurationParser(), true), "nunit.xml");
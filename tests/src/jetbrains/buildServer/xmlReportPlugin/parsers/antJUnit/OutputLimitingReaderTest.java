@@ -0,0 +1,102 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.parsers.antJUnit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import jetbrains.buildServer.util.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class OutputLimitingReaderTest {
+  @Test
+  public void test_short_output_unchanged() throws Exception {
+    final String content = "<testsuite><testcase name=\"a\"><system-out><![CDATA[out\r\n]]> &amp; more</system-out><system-err/></testcase>" +
+                           "<system-err>err</system-err></testsuite>";
+    Assert.assertEquals(read(content, 40, 100, null), content);
+  }
+
+  @Test
+  public void test_short_text_of_long_markup() throws Exception {
+    Assert.assertEquals(read("<system-out><![CDATA[out\r\n]]> &amp; more</system-out>", 20, 100, null),
+                        "<system-out>out\n &amp; more</system-out>");
+  }
+
+  @Test
+  public void test_head_and_tail_kept() throws Exception {
+    Assert.assertEquals(read("<system-out>0123456789ABCDEFGHIJ</system-out>", 10, 100, null),
+                        "<system-out>01234\n\n... 10 characters of system-out skipped ...\n\nFGHIJ</system-out>");
+  }
+
+  @Test
+  public void test_truncated_text_escaped() throws Exception {
+    Assert.assertEquals(read("<system-err><![CDATA[<a>]]>&amp;&#13;\r\n123456<![CDATA[]]>&lt;/system-err></system-err>", 6, 100, null),
+                        "<system-err>&lt;a&gt;\n\n... 19 characters of system-err skipped ...\n\nrr&gt;</system-err>");
+  }
+
+  @Test
+  public void test_report_limit() throws Exception {
+    Assert.assertEquals(read("<system-out>12345678</system-out><system-err>0123456789ABCDEFGHIJ</system-err><system-out>abc</system-out>", 10, 15, null),
+                        "<system-out>12345678</system-out>" +
+                        "<system-err>012\n\n... 13 characters of system-err skipped ...\n\nGHIJ</system-err>" +
+                        "<system-out>\n\n... 3 characters of system-out skipped ...\n\n</system-out>");
+  }
+
+  @Test
+  public void test_surrogates_not_split() throws Exception {
+    Assert.assertEquals(read("<system-out>ab\uD83D\uDE00cdefgh\uD83D\uDE00ij</system-out>", 6, 100, null),
+                        "<system-out>ab\n\n... 10 characters of system-out skipped ...\n\nij</system-out>");
+  }
+
+  @Test
+  public void test_whole_text_saved() throws Exception {
+    final File dir = FileUtil.createTempDirectory("output", "");
+    try {
+      final String result = read("<system-out>0123456789&lt;ABCDEFGHIJ</system-out>", 10, 100, new File(dir, "spill"));
+
+      final File[] files = new File(dir, "spill").listFiles();
+      Assert.assertNotNull(files);
+      Assert.assertEquals(files.length, 1);
+      Assert.assertEquals(FileUtil.readText(files[0], "UTF-8"), "0123456789<ABCDEFGHIJ");
+      Assert.assertEquals(result, "<system-out>01234\n\n... 11 characters of system-out skipped, the whole text is saved to " +
+                                  files[0].getAbsolutePath() + " ...\n\nFGHIJ</system-out>");
+    } finally {
+      FileUtil.delete(dir);
+    }
+  }
+
+  @NotNull
+  private static String read(@NotNull String content, int maxLength, long maxReportLength, @Nullable File spillDir) throws IOException {
+    final Reader reader = new OutputLimitingReader(new StringReader(content), maxLength, maxReportLength, spillDir);
+    try {
+      final StringBuilder result = new StringBuilder();
+      final char[] buffer = new char[3];
+      int read;
+      while ((read = reader.read(buffer)) > 0) {
+        result.append(buffer, 0, read);
+      }
+      return result.toString();
+    } finally {
+      reader.close();
+    }
+  }
+}
@@ -18,6 +18,7 @@ package jetbrains.buildServer.xmlReportPlugin.parsers.checkstyle;
 
 import jetbrains.buildServer.xmlReportPlugin.BaseParserTestCase;
 import jetbrains.buildServer.xmlReportPlugin.Parser;
+import jetbrains.buildServer.xmlReportPlugin.ParsingException;
 import org.jetbrains.annotations.NotNull;
 import org.testng.annotations.Test;
 
@@ -67,4 +68,15 @@ public class CheckstyleReportParserTest extends BaseParserTestCase {
   public void testBig() throws Exception {
     runTest("big.xml");
   }
+
+  // only the closed root element is checked before parsing, so the inspections before the malformed element are reported
+  @Test
+  public void testMalformedClosed() throws Exception {
+    try {
+      parse("malformedClosed.xml");
+    } catch (ParsingException e) {
+      // the parser stops at the malformed element
+    }
+    assertResultEquals(getExpectedResult("malformedClosed.xml.gold"));
+  }
 }
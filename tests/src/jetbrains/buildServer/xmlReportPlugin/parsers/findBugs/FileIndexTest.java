@@ -0,0 +1,96 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.parsers.findBugs;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import jetbrains.buildServer.BaseTestCase;
+import org.jetbrains.annotations.NotNull;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test
+public class FileIndexTest extends BaseTestCase {
+  @NotNull
+  private File myDir;
+
+  @BeforeMethod
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    myDir = createTempDir();
+  }
+
+  @Test
+  public void test_entries_shared() throws Exception {
+    final FileIndex index = new FileIndex();
+    try {
+      final String jar = createJar("a.jar").getPath();
+      final FileIndex.Entry entry = index.getEntry(jar);
+      assertNotNull(entry);
+      assertSame(index.getEntry(jar), entry);
+    } finally {
+      index.close();
+    }
+  }
+
+  @Test
+  public void test_missing_archive_skipped() throws Exception {
+    final FileIndex index = new FileIndex();
+    try {
+      assertNull(index.getEntry(new File(myDir, "missing.jar").getPath()));
+    } finally {
+      index.close();
+    }
+  }
+
+  @Test
+  public void test_least_recently_used_archives_closed() throws Exception {
+    final FileIndex index = new FileIndex(2);
+    try {
+      final FileIndex.Entry a = index.getEntry(createJar("a.jar").getPath());
+      assertNotNull(a);
+      assertNotNull(index.getEntry(createJar("b.jar").getPath()));
+      assertEquals(index.getOpenArchivesCount(), 2);
+
+      assertNotNull(index.getEntry(createJar("c.jar").getPath()));
+      assertEquals(index.getOpenArchivesCount(), 2);
+
+      a.getFilePath("jetbrains/A.class");
+      assertEquals(index.getOpenArchivesCount(), 2);
+    } finally {
+      index.close();
+    }
+    assertEquals(index.getOpenArchivesCount(), 0);
+  }
+
+  @NotNull
+  private File createJar(@NotNull String name) throws IOException {
+    final File jar = new File(myDir, name);
+    final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar));
+    try {
+      out.putNextEntry(new ZipEntry("jetbrains/A.class"));
+      out.closeEntry();
+    } finally {
+      out.close();
+    }
+    return jar;
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.parsers.findBugs;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import jetbrains.buildServer.BaseTestCase;
+import jetbrains.buildServer.util.FileUtil;
+import jetbrains.buildServer.xmlReportPlugin.TestUtil;
+import org.jetbrains.annotations.NotNull;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test
+public class FindBugsMetadataCacheTest extends BaseTestCase {
+  @NotNull
+  private File myFindBugsHome;
+  @NotNull
+  private File myCorePlugin;
+  @NotNull
+  private FindBugsMetadataCache myCache;
+
+  @BeforeMethod
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    myFindBugsHome = createTempDir();
+    myCorePlugin = new File(myFindBugsHome, "lib/findbugs.jar");
+    //noinspection ResultOfMethodCallIgnored
+    myCorePlugin.getParentFile().mkdirs();
+    FileUtil.copy(TestUtil.getTestDataFile("lib/findbugs.jar", "findBugs"), myCorePlugin);
+    myCache = new FindBugsMetadataCache();
+  }
+
+  @Test
+  public void test_plugins_loaded_once() throws Exception {
+    final FindBugsMetadata metadata = myCache.getPluginsMetadata(myFindBugsHome);
+    assertTrue(metadata.isComplete());
+
+    final FindBugsMetadata.NameAndDescritionInfo pattern = metadata.getPattern("HE_EQUALS_USE_HASHCODE");
+    assertNotNull(pattern);
+    assertEquals(pattern.getName(), "Class defines equals() and uses Object.hashCode()");
+    final FindBugsMetadata.NameAndDescritionInfo category = metadata.getCategory("BAD_PRACTICE");
+    assertNotNull(category);
+    assertEquals(category.getName(), "Bad practice");
+
+    assertSame(myCache.getPluginsMetadata(myFindBugsHome), metadata);
+  }
+
+  @Test
+  public void test_plugins_reloaded_when_modified() throws Exception {
+    final FindBugsMetadata metadata = myCache.getPluginsMetadata(myFindBugsHome);
+
+    assertTrue(myCorePlugin.setLastModified(myCorePlugin.lastModified() - 60 * 1000L));
+    assertNotSame(myCache.getPluginsMetadata(myFindBugsHome), metadata);
+  }
+
+  @Test
+  public void test_incomplete_not_cached() throws Exception {
+    final File plugin = new File(myFindBugsHome, "plugin/broken.jar");
+    //noinspection ResultOfMethodCallIgnored
+    plugin.getParentFile().mkdirs();
+    final JarOutputStream jar = new JarOutputStream(new FileOutputStream(plugin));
+    try {
+      jar.putNextEntry(new JarEntry("messages.xml"));
+      jar.write("<MessageCollection>\n  <BugPattern type=\"BROKEN\">\n    <ShortDescription>Broken".getBytes("UTF-8"));
+      jar.closeEntry();
+    } finally {
+      jar.close();
+    }
+
+    final FindBugsMetadata metadata = myCache.getPluginsMetadata(myFindBugsHome);
+    assertFalse(metadata.isComplete());
+    assertNotNull(metadata.getPattern("HE_EQUALS_USE_HASHCODE"));
+
+    assertNotSame(myCache.getPluginsMetadata(myFindBugsHome), metadata);
+  }
+
+  @Test
+  public void test_copy_does_not_modify_cached() throws Exception {
+    final FindBugsMetadata metadata = myCache.getPluginsMetadata(myFindBugsHome);
+
+    final FindBugsMetadata copy = new FindBugsMetadata(metadata);
+    copy.load(("<MessageCollection>\n" +
+               "  <BugPattern type=\"HE_EQUALS_USE_HASHCODE\">\n" +
+               "    <ShortDescription>Redefined</ShortDescription>\n" +
+               "  </BugPattern>\n" +
+               "</MessageCollection>").getBytes("UTF-8"));
+
+    final FindBugsMetadata.NameAndDescritionInfo redefined = copy.getPattern("HE_EQUALS_USE_HASHCODE");
+    assertNotNull(redefined);
+    assertEquals(redefined.getName(), "Redefined");
+    assertEquals(redefined.getDescription(), metadata.getPattern("HE_EQUALS_USE_HASHCODE").getDescription());
+    assertEquals(metadata.getPattern("HE_EQUALS_USE_HASHCODE").getName(), "Class defines equals() and uses Object.hashCode()");
+  }
+}
@@ -76,6 +76,46 @@ public class DurationParserTest {
     doTest(" ", "", -1);
   }
 
+  @Test
+  public void test_parseRange_offsets() {
+    // the offsets are ignored, the same with the date format used for the timestamps DurationUtils doesn't accept
+    doTest("2010-02-12T14:44:43.8081661+01:00", "2010-02-12T14:44:45.9393792+00:00", 2000);
+    doTest("2010-02-12T14:44:43.8081661+01:00", "2010-02-12T14:44:45+00:00 end", 2000);
+    doTest("2010-02-12T23:59:59Z", "2010-02-13T00:00:01Z", 2000);
+    doTest("2010-02-12T23:59:59Z", "2010-02-13T00:00:01-05:00", 2000);
+  }
+
+  @Test
+  public void test_parseRange_fallback_concurrently() throws Exception {
+    // trailing characters are rejected by DurationUtils and accepted by the date format of the fallback
+    final DurationParser parser = new DurationParser();
+    final Thread[] threads = new Thread[4];
+    final Throwable[] failure = new Throwable[1];
+    for (int i = 0; i < threads.length; ++i) {
+      final int seconds = 10 + i;
+      threads[i] = new Thread(new Runnable() {
+        public void run() {
+          try {
+            for (int j = 0; j < 1000; ++j) {
+              assertEquals(parser.parseTestDuration("2010-02-12T14:44:00 start", "2010-02-12T14:44:" + seconds + " end"), seconds * 1000L);
+            }
+          } catch (Throwable t) {
+            synchronized (failure) {
+              failure[0] = t;
+            }
+          }
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    synchronized (failure) {
+      if (failure[0] != null) throw new AssertionError(failure[0]);
+    }
+  }
+
   private void doTest(final String str, final long expected) {
     long v = new DurationParser().parseTestDuration(str);
     assertEquals(v, expected,"Parsing " + str);
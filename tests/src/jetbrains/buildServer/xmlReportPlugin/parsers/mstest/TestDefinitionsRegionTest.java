@@ -0,0 +1,107 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.parsers.mstest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import jetbrains.buildServer.BaseTestCase;
+import jetbrains.buildServer.util.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.testng.annotations.Test;
+
+@Test
+public class TestDefinitionsRegionTest extends BaseTestCase {
+  private static final String HEADER = "\uFEFF<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                                       "<TestRun id=\"1\" name=\"a > b\" xmlns=\"http://microsoft.com/schemas/VisualStudio/TeamTest/2010\">";
+  private static final String DEFINITIONS = "<TestDefinitions><UnitTest name=\"test\" id=\"2\"><TestMethod className=\"Tests\" name=\"test\"/></UnitTest></TestDefinitions>";
+  private static final String RESULTS = "<Results><UnitTestResult testId=\"2\" outcome=\"Passed\"><Output><StdOut>&lt;TestDefinitions&gt;</StdOut></Output></UnitTestResult></Results>";
+  private static final String SUMMARY = "<ResultSummary outcome=\"Completed\"/></TestRun>";
+
+  @Test
+  public void test_definitions_before_results() throws Exception {
+    doTest(HEADER + "<TestSettings/>" + DEFINITIONS + "<TestEntries/>" + RESULTS + SUMMARY, "<TestSettings/>", DEFINITIONS);
+  }
+
+  @Test
+  public void test_definitions_after_results() throws Exception {
+    doTest(HEADER + "<Times/>" + RESULTS + DEFINITIONS + "<TestEntries/>" + SUMMARY, "<Times/>" + RESULTS, DEFINITIONS);
+  }
+
+  @Test
+  public void test_empty_definitions_after_results() throws Exception {
+    doTest(HEADER + RESULTS + "<TestDefinitions />" + SUMMARY, RESULTS, "<TestDefinitions />");
+  }
+
+  @Test
+  public void test_no_definitions() throws Exception {
+    assertNull(TestDefinitionsRegion.find(write(HEADER + RESULTS + SUMMARY)));
+    assertNull(TestDefinitionsRegion.find(write(HEADER + SUMMARY)));
+  }
+
+  @Test
+  public void test_not_test_run() throws Exception {
+    assertNull(TestDefinitionsRegion.find(MSTestBaseTest.getTestData("tests-vs2005.trx")));
+  }
+
+  @Test
+  public void test_report() throws Exception {
+    final File report = MSTestBaseTest.getTestData("vs2010.trx");
+    final TestDefinitionsRegion region = TestDefinitionsRegion.find(report);
+    assertNotNull(region);
+
+    final String content = new String(FileUtil.loadFileBytes(report), "ISO-8859-1");
+    assertEquals(region.getStart(), content.indexOf("<TestDefinitions"));
+    assertEquals(region.getEnd(), content.indexOf("</TestDefinitions>") + "</TestDefinitions>".length());
+    assertTrue(read(region).endsWith("</TestDefinitions></TestRun>"));
+  }
+
+  private void doTest(@NotNull String content, @NotNull String before, @NotNull String definitions) throws IOException {
+    final TestDefinitionsRegion region = TestDefinitionsRegion.find(write(content));
+    assertNotNull(region);
+
+    final int start = (HEADER + before).getBytes("UTF-8").length;
+    assertEquals(region.getStart(), start);
+    assertEquals(region.getEnd(), start + definitions.length());
+
+    final String root = HEADER.substring(HEADER.indexOf("<TestRun"));
+    assertEquals(read(region), root + definitions + "</TestRun>");
+  }
+
+  @NotNull
+  private File write(@NotNull String content) throws IOException {
+    final File report = new File(createTempDir(), "report.trx");
+    FileUtil.writeFile(report, content, "UTF-8");
+    return report;
+  }
+
+  @NotNull
+  private static String read(@NotNull TestDefinitionsRegion region) throws IOException {
+    final Reader reader = region.createReader();
+    try {
+      final StringBuilder result = new StringBuilder();
+      final char[] buffer = new char[1024];
+      int read;
+      while ((read = reader.read(buffer)) > 0) {
+        result.append(buffer, 0, read);
+      }
+      return result.toString();
+    } finally {
+      reader.close();
+    }
+  }
+}
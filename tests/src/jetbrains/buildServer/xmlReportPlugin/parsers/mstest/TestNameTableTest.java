@@ -0,0 +1,96 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.parsers.mstest;
+
+import java.util.UUID;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class TestNameTableTest {
+  @Test
+  public void test_guid_ids() {
+    final TestNameTable table = new TestNameTable();
+    table.put("c6da2ac2-3ad4-4b8b-9a0c-ba5c3b2a2e8f", "Tests.Namespace.Class.method");
+    table.put("C6DA2AC2-3AD4-4B8B-9A0C-BA5C3B2A2E90", "Tests.Namespace.Class.other (with description. and dots)");
+    table.put("00000000-0000-0000-0000-000000000000", "method");
+
+    Assert.assertEquals(table.size(), 3);
+    Assert.assertEquals(table.getClassCount(), 2);
+    Assert.assertEquals(table.get("c6da2ac2-3ad4-4b8b-9a0c-ba5c3b2a2e8f"), "Tests.Namespace.Class.method");
+    Assert.assertEquals(table.get("C6DA2AC2-3AD4-4B8B-9A0C-BA5C3B2A2E90"), "Tests.Namespace.Class.other (with description. and dots)");
+    Assert.assertEquals(table.get("00000000-0000-0000-0000-000000000000"), "method");
+    Assert.assertNull(table.get("00000000-0000-0000-0000-000000000001"));
+  }
+
+  @Test
+  public void test_ids_matched_exactly() {
+    final TestNameTable table = new TestNameTable();
+    table.put("c6da2ac2-3ad4-4b8b-9a0c-ba5c3b2a2e8f", "Class.lower");
+    table.put("C6DA2AC2-3AD4-4B8B-9A0C-BA5C3B2A2E8F", "Class.upper");
+    table.put("C6DA2AC2-3AD4-4B8B-9A0C-BA5C3B2A2E90", "Class.other");
+
+    Assert.assertEquals(table.size(), 3);
+    Assert.assertEquals(table.get("c6da2ac2-3ad4-4b8b-9a0c-ba5c3b2a2e8f"), "Class.lower");
+    Assert.assertEquals(table.get("C6DA2AC2-3AD4-4B8B-9A0C-BA5C3B2A2E8F"), "Class.upper");
+    Assert.assertNull(table.get("c6da2ac2-3ad4-4b8b-9a0c-ba5c3b2a2e90"));
+    Assert.assertNull(table.get("c6da2ac2-3ad4-4b8b-9a0c-BA5C3B2A2E8F"));
+  }
+
+  @Test
+  public void test_other_ids() {
+    final TestNameTable table = new TestNameTable();
+    table.put("1", "Class.method");
+    table.put("c6da2ac2-3ad4-4b8b-9a0c-ba5c3b2a2e8g", "Class.other");
+
+    Assert.assertEquals(table.size(), 2);
+    Assert.assertEquals(table.get("1"), "Class.method");
+    Assert.assertEquals(table.get("c6da2ac2-3ad4-4b8b-9a0c-ba5c3b2a2e8g"), "Class.other");
+    Assert.assertNull(table.get("2"));
+  }
+
+  @Test
+  public void test_replace_and_clear() {
+    final TestNameTable table = new TestNameTable();
+    table.put("c6da2ac2-3ad4-4b8b-9a0c-ba5c3b2a2e8f", "Class.method");
+    table.put("c6da2ac2-3ad4-4b8b-9a0c-ba5c3b2a2e8f", "Class.renamed");
+
+    Assert.assertEquals(table.size(), 1);
+    Assert.assertEquals(table.get("c6da2ac2-3ad4-4b8b-9a0c-ba5c3b2a2e8f"), "Class.renamed");
+
+    table.clear();
+    Assert.assertEquals(table.size(), 0);
+    Assert.assertNull(table.get("c6da2ac2-3ad4-4b8b-9a0c-ba5c3b2a2e8f"));
+  }
+
+  @Test
+  public void test_million_tests() {
+    final int count = 1000000;
+    final TestNameTable table = new TestNameTable();
+    final UUID[] ids = new UUID[count];
+    for (int i = 0; i < count; ++i) {
+      ids[i] = UUID.randomUUID();
+      table.put(ids[i].toString(), "Tests.Namespace.Class" + i / 100 + ".method" + i);
+    }
+
+    Assert.assertEquals(table.size(), count);
+    Assert.assertEquals(table.getClassCount(), count / 100);
+    for (int i = 0; i < count; i += 997) {
+      Assert.assertEquals(table.get(ids[i].toString()), "Tests.Namespace.Class" + i / 100 + ".method" + i);
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.parsers.pmdCpd;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import org.jetbrains.annotations.NotNull;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class CodeFragmentHashingReaderTest {
+  @Test
+  public void test_cdata() throws Exception {
+    doTest("<codefragment>\n<![CDATA[\n  int a = 0;\n  a++;\n]]>\n</codefragment>", "int a = 0;\n  a++;");
+  }
+
+  @Test
+  public void test_line_ends_normalized() throws Exception {
+    doTest("<codefragment><![CDATA[a\r\nb\rc\n\r]]></codefragment>", "a\nb\nc");
+  }
+
+  @Test
+  public void test_text_and_entities() throws Exception {
+    doTest("<codefragment> a &lt; b &amp;&amp; &#99; &#x1F600;<!-- comment --> <![CDATA[&lt;]]> </codefragment>", "a < b && c \uD83D\uDE00 &lt;");
+  }
+
+  @Test
+  public void test_empty() throws Exception {
+    doTest("<codefragment>  </codefragment>", "");
+    final CodeFragmentHashingReader reader = new CodeFragmentHashingReader(new StringReader("<codefragment/>"));
+    Assert.assertEquals(read(reader), "<codefragment/>");
+    Assert.assertEquals(reader.nextHash(), "".hashCode());
+    assertNoMoreHashes(reader);
+  }
+
+  @Test
+  public void test_integer_literal() throws Exception {
+    doTest("<codefragment>42</codefragment>", "42");
+    doTest("<codefragment> -7 </codefragment>", "-7");
+  }
+
+  @Test
+  public void test_other_content_unchanged() throws Exception {
+    final String content = "<?xml version=\"1.0\"?>\n<!-- <codefragment>a</codefragment> -->\n" +
+                           "<pmd-cpd><duplication lines=\"1\" tokens=\"2\"><file line=\"1\" path=\"a>b\"/><![CDATA[<codefragment>]]></duplication></pmd-cpd>";
+    final CodeFragmentHashingReader reader = new CodeFragmentHashingReader(new StringReader(content));
+    Assert.assertEquals(read(reader), content);
+    assertNoMoreHashes(reader);
+  }
+
+  @Test
+  public void test_several_fragments() throws Exception {
+    final CodeFragmentHashingReader reader = new CodeFragmentHashingReader(new StringReader("<d><codefragment>a</codefragment></d><d><codefragment >b</codefragment></d>"));
+    Assert.assertEquals(read(reader), "<d><codefragment></codefragment></d><d><codefragment ></codefragment></d>");
+    Assert.assertEquals(reader.nextHash(), "a".hashCode());
+    Assert.assertEquals(reader.nextHash(), "b".hashCode());
+    assertNoMoreHashes(reader);
+  }
+
+  private static void doTest(@NotNull String fragment, @NotNull String text) throws IOException {
+    final CodeFragmentHashingReader reader = new CodeFragmentHashingReader(new StringReader(fragment));
+    Assert.assertEquals(read(reader), "<codefragment></codefragment>");
+    Assert.assertEquals(reader.nextHash(), text.hashCode());
+    assertNoMoreHashes(reader);
+  }
+
+  private static void assertNoMoreHashes(@NotNull CodeFragmentHashingReader reader) {
+    try {
+      reader.nextHash();
+      Assert.fail("No more hashes expected");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+  @NotNull
+  private static String read(@NotNull Reader reader) throws IOException {
+    try {
+      final StringBuilder result = new StringBuilder();
+      final char[] buffer = new char[3];
+      int read;
+      while ((read = reader.read(buffer)) > 0) {
+        result.append(buffer, 0, read);
+      }
+      return result.toString();
+    } finally {
+      reader.close();
+    }
+  }
+}
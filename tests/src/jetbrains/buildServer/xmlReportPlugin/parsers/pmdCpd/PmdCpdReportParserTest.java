@@ -16,6 +16,10 @@
 
 package jetbrains.buildServer.xmlReportPlugin.parsers.pmdCpd;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import jetbrains.buildServer.util.FileUtil;
 import jetbrains.buildServer.util.TestFor;
 import jetbrains.buildServer.xmlReportPlugin.BaseParserTestCase;
 import jetbrains.buildServer.xmlReportPlugin.Parser;
@@ -52,6 +56,24 @@ public class PmdCpdReportParserTest extends BaseParserTestCase {
     runTest("result2.xml");
   }
 
+  @Test
+  public void testByteOrderMark() throws Exception {
+    final File report = File.createTempFile("resultBom", ".xml");
+    try {
+      final OutputStream out = new FileOutputStream(report);
+      try {
+        out.write(new byte[]{(byte)0xEF, (byte)0xBB, (byte)0xBF});
+        out.write(FileUtil.loadFileBytes(getReport("result.xml")));
+      } finally {
+        out.close();
+      }
+      getParser().parse(report, null);
+    } finally {
+      FileUtil.delete(report);
+    }
+    assertResultEquals(getExpectedResult("result.xml.gold"));
+  }
+
   private void runTest(final String reportName) throws Exception {
     parse(reportName);
     assertResultEquals(getExpectedResult(reportName + ".gold"));
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.tests;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import jetbrains.buildServer.agent.BuildProgressLogger;
+import jetbrains.buildServer.xmlReportPlugin.TestUtil;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.api.Invocation;
+import org.jmock.lib.action.CustomAction;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+@Test
+public class FailuresOnlyTestReporterTest {
+  private StringBuilder myResult;
+  private List<String> myMessages;
+  private PassedTestStatistics myStatistics;
+  private FailuresOnlyTestReporter myReporter;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    myResult = new StringBuilder();
+    myMessages = new ArrayList<String>();
+    final Mockery context = new Mockery();
+    final BuildProgressLogger logger = context.mock(BuildProgressLogger.class);
+
+    context.checking(new Expectations() {{
+      allowing(logger).message(with(any(String.class)));
+      will(new CustomAction("record messages") {
+        public Object invoke(Invocation invocation) {
+          myMessages.add((String)invocation.getParameter(0));
+          return null;
+        }
+      });
+    }});
+
+    myStatistics = new PassedTestStatistics(logger);
+    myReporter = new FailuresOnlyTestReporter(TestUtil.createTestResultsWriter(myResult), myStatistics);
+  }
+
+  @Test
+  public void test_passed_tests_not_reported() {
+    myReporter.openTestSuite("suite");
+    myReporter.openTest("test1");
+    myReporter.testStdOutput("out");
+    myReporter.closeTest(10);
+    myReporter.openTest("test2");
+    myReporter.closeTest(20);
+    myReporter.closeTestSuite();
+
+    assertEquals(myResult.toString(), "-->Info: suite: 2 passed tests not reported, total duration 30 ms\n");
+  }
+
+  @Test
+  public void test_failed_test_reported_with_output() {
+    myReporter.openTestSuite("suite");
+    myReporter.openTest("passed");
+    myReporter.closeTest(10);
+    myReporter.openTest("failed");
+    myReporter.testStdOutput("out");
+    myReporter.testErrOutput("err");
+    myReporter.testFail("error", "stacktrace");
+    myReporter.testStdOutput("after");
+    myReporter.closeTest(20);
+    myReporter.closeTestSuite();
+
+    assertEquals(myResult.toString(),
+                 "TestSuite:suite\n" +
+                 "  Test:failed\n" +
+                 "    StdOutput:out\n" +
+                 "    ErrOutput:err\n" +
+                 "    Fail:error Message: stacktrace\n" +
+                 "    StdOutput:after\n" +
+                 "  EndTest:20\n------------------------\n" +
+                 "-->Info: suite: 1 passed test not reported, total duration 10 ms\n" +
+                 "EndSuite\n");
+  }
+
+  @Test
+  public void test_ignored_test_opens_outer_suites() {
+    myReporter.openTestSuite("outer");
+    myReporter.openTestSuite("passing");
+    myReporter.openTest("passed");
+    myReporter.closeTest(10);
+    myReporter.closeTestSuite();
+    myReporter.openTestSuite("inner");
+    myReporter.openTest("ignored");
+    myReporter.testIgnored("reason");
+    myReporter.closeTest(0);
+    myReporter.closeTestSuite();
+    myReporter.closeTestSuite();
+
+    assertEquals(myResult.toString(),
+                 "-->Info: passing: 1 passed test not reported, total duration 10 ms\n" +
+                 "TestSuite:outer\n" +
+                 "TestSuite:inner\n" +
+                 "  Test:ignored\n" +
+                 "    Ignored:reason\n" +
+                 "  EndTest:0\n------------------------\n" +
+                 "EndSuite\n" +
+                 "EndSuite\n");
+  }
+
+  @Test
+  public void test_suite_failure_opens_suites() {
+    myReporter.openTestSuite("outer");
+    myReporter.openTestSuite("inner");
+    myReporter.openTest("passed");
+    myReporter.closeTest(10);
+    myReporter.testFail("suite error", "stacktrace");
+    myReporter.closeTestSuite();
+    myReporter.closeTestSuite();
+
+    assertEquals(myResult.toString(),
+                 "TestSuite:outer\n" +
+                 "TestSuite:inner\n" +
+                 "    Fail:suite error Message: stacktrace\n" +
+                 "-->Info: inner: 1 passed test not reported, total duration 10 ms\n" +
+                 "EndSuite\n" +
+                 "EndSuite\n");
+  }
+
+  @Test
+  public void test_statistics_added_on_flush() {
+    myReporter.openTestSuite("suite");
+    myReporter.openTest("test");
+    myReporter.closeTest(10);
+    myReporter.closeTestSuite();
+    assertEquals(myMessages.size(), 0);
+
+    myReporter.flush();
+    myReporter.flush();
+    new FailuresOnlyTestReporter(TestUtil.createTestResultsWriter(myResult), myStatistics).flush();
+    assertEquals(myStatistics.getPassedTests(), 1);
+    assertEquals(myStatistics.getPassedDuration(), 10);
+    assertEquals(myMessages, Arrays.asList("##teamcity[buildStatisticValue key='xmlReportParsing.passedTestCount' value='1']",
+                                           "##teamcity[buildStatisticValue key='xmlReportParsing.passedTestDuration' value='10']"));
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2000-2022 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.xmlReportPlugin.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import static jetbrains.buildServer.xmlReportPlugin.utils.DurationUtils.UNPARSED;
+
+public class DurationUtilsTest {
+
+  @DataProvider
+  public Object[][] secondsData() {
+    return new Object[][]{
+      {"1", 1000L},
+      {"1.5", 1500L},
+      {"1,5", 1500L},
+      {"0.0005", 1L},
+      {"-0.25", -250L},
+      {" 2.125 ", 2125L},
+      {".5", 500L},
+      {"5.", 5000L},
+      {"1,234.5", 1234500L},
+      {"1.234,5", 1234500L},
+      {"1'234.5", 1234500L},
+      {"1\u00A0234,5", 1234500L},
+      {"12.3456789", 12346L},
+      {"1,2,3", UNPARSED},
+      {"1.5E3", UNPARSED},
+      {"NaN", UNPARSED},
+      {"-", UNPARSED},
+      {"", UNPARSED},
+      {"12345678901234567890", UNPARSED},
+    };
+  }
+
+  @Test(dataProvider = "secondsData")
+  public void testParseSeconds(String text, long expected) {
+    Assert.assertEquals(DurationUtils.parseSeconds(text, 0, text.length()), expected, text);
+  }
+
+  @Test
+  public void testParseSecondsRange() {
+    final String text = "time=\"0.25\"";
+    Assert.assertEquals(DurationUtils.parseSeconds(text, 6, 10), 250L);
+  }
+
+  @DataProvider
+  public Object[][] longData() {
+    return new Object[][]{
+      {"0", 0L},
+      {"1234", 1234L},
+      {"+1234", 1234L},
+      {"-1234", -1234L},
+      {"9223372036854775807", Long.MAX_VALUE},
+      {"9223372036854775808", UNPARSED},
+      {"-9223372036854775809", UNPARSED},
+      {" 1", UNPARSED},
+      {"1.0", UNPARSED},
+      {"-", UNPARSED},
+      {"", UNPARSED},
+    };
+  }
+
+  @Test(dataProvider = "longData")
+  public void testParseLong(String text, long expected) {
+    Assert.assertEquals(DurationUtils.parseLong(text, 0, text.length()), expected, text);
+  }
+
+  @DataProvider
+  public Object[][] timeSpanData() {
+    return new Object[][]{
+      {"01:01:01", 3661000L},
+      {"00:00:01.0074699", 1008L},
+      {"00:00:00.0002279", 1L},
+      {"1.5:00:00", 5400000L},
+      {"00:00", UNPARSED},
+      {"00:00:00:00", UNPARSED},
+      {"00::00", UNPARSED},
+      {"00:00:1e3", UNPARSED},
+    };
+  }
+
+  @Test(dataProvider = "timeSpanData")
+  public void testParseTimeSpan(String text, long expected) {
+    Assert.assertEquals(DurationUtils.parseTimeSpan(text, 0, text.length()), expected, text);
+  }
+
+  @DataProvider
+  public Object[][] timestampData() {
+    return new Object[][]{
+      {"1970-01-01T00:00:00", 0L},
+      {"1970-01-01T00:00:00Z", 0L},
+      {"1969-12-31T23:59:59.5Z", -500L},
+      {"2010-02-12T14:44:45.9393792+00:00", 1265985885939L},
+      {"2010-02-12T15:44:45.9393792+01:00", 1265985885939L},
+      {"2010-02-12T13:44:45.9393792-0100", 1265985885939L},
+      {"2000-02-29T00:00:00Z", 951782400000L},
+      {"2010-02-12 14:44:45", UNPARSED},
+      {"2010-13-12T14:44:45", UNPARSED},
+      {"2010-02-12T14:44:45.", UNPARSED},
+      {"2010-02-12T14:44:45+1:00", UNPARSED},
+      {"2010-02-12T14:44:45 ", UNPARSED},
+      {"2010-www02-12T14:44:43", UNPARSED},
+    };
+  }
+
+  @Test(dataProvider = "timestampData")
+  public void testParseTimestamp(String text, long expected) {
+    Assert.assertEquals(DurationUtils.parseTimestamp(text, 0, text.length()), expected, text);
+  }
+}
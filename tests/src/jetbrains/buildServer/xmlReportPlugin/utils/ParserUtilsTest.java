@@ -18,6 +18,7 @@ package jetbrains.buildServer.xmlReportPlugin.utils;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import jetbrains.buildServer.util.FileUtil;
 import jetbrains.buildServer.xmlReportPlugin.TestUtil;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
@@ -60,6 +61,45 @@ public class ParserUtilsTest {
     doTestReportComplete("xml-bomb.xml", false);
   }
 
+  @Test
+  public void testIsReportClosed() throws Exception {
+    Assert.assertTrue(ParserUtils.isReportClosed(getReport("simple.xml"), "pmd"));
+    Assert.assertFalse(ParserUtils.isReportClosed(getReport("simple.xml"), "checkstyle"));
+  }
+
+  @Test
+  public void testIsReportClosed_Truncated() throws Exception {
+    final String content = FileUtil.readText(getReport("simple.xml"));
+    final File report = File.createTempFile("report", ".xml");
+    try {
+      FileUtil.writeFileAndReportErrors(report, content.substring(0, content.lastIndexOf("</pmd>") + 4));
+      Assert.assertFalse(ParserUtils.isReportClosed(report, "pmd"));
+
+      FileUtil.writeFileAndReportErrors(report, content.substring(0, content.lastIndexOf("</file>")));
+      Assert.assertFalse(ParserUtils.isReportClosed(report, "pmd"));
+
+      FileUtil.writeFileAndReportErrors(report, content + "\n<!-- generated -->\n");
+      Assert.assertTrue(ParserUtils.isReportClosed(report, "pmd"));
+
+      FileUtil.writeFileAndReportErrors(report, "<?xml version=\"1.0\"?>\n<pmd version=\"4.2.4\"/>\n");
+      Assert.assertTrue(ParserUtils.isReportClosed(report, "pmd"));
+    } finally {
+      FileUtil.delete(report);
+    }
+  }
+
+  @Test(timeOut = 5 * 1000)
+  public void testIsReportClosed_XML_Bomb() throws Exception {
+    // reports declaring DTD are completely pre-parsed
+    Assert.assertFalse(ParserUtils.isReportClosed(getReport("xml-bomb.xml"), "pmd"));
+  }
+
+  @Test
+  public void testIsReportClosed_Malformed() throws Exception {
+    // the malformed content is left to the parser
+    Assert.assertTrue(ParserUtils.isReportClosed(TestUtil.getTestDataFile("malformedClosed.xml", "checkstyle"), "checkstyle"));
+  }
+
   @DataProvider(name = "isNumberData")
   public Object[][] isNumberData() {
     return new Object[][] {
@@ -95,4 +135,26 @@ public class ParserUtilsTest {
   public void isNumber(String str, Boolean isNumber) {
     Assert.assertEquals(Boolean.valueOf(ParserUtils.isNumber(str)), isNumber, str + " != " + isNumber);
   }
-}
\ No newline at end of file
+
+  @DataProvider(name = "formatTextData")
+  public Object[][] formatTextData() {
+    return new Object[][] {
+      {"", ""},
+      {"  text  ", "text"},
+      {"a&nbsp;b", "a b"},
+      {"a&nbsp;&nbsp; \t b", "a b"},
+      {"line\r\nline", "line line"},
+      {"li\rne", "line"},
+      {"<p>text</p>", "text"},
+      {"a <b> c", "a  c"},
+      {"<br/> <P>text</P>", "<br/> <P>text</P>"},
+      {"a < b > c", "a < b > c"},
+      {"<\rb>text", "text"},
+    };
+  }
+
+  @Test(dataProvider = "formatTextData")
+  public void formatText(String text, String expected) {
+    Assert.assertEquals(ParserUtils.formatText(text), expected);
+  }
+}